@@ -0,0 +1,113 @@
+package me.drazz.telegramremote.benchmarks;
+
+import me.drazz.telegramremote.logs.LogFanout;
+import me.drazz.telegramremote.logs.LogFilter;
+import me.drazz.telegramremote.logs.LogOutbox;
+import me.drazz.telegramremote.logs.LogRingBuffer;
+import me.drazz.telegramremote.logs.LogRouter;
+import me.drazz.telegramremote.logs.LogSubscription;
+import me.drazz.telegramremote.metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * The handler-thread side of the log pipeline. {@code assemble} packs queued lines into
+ * Telegram-sized messages; {@code processQueue} runs one pass of what processLogQueue does with a
+ * full ring (drain through the handler's own {@link LogRouter}: recipient masks, coalescing,
+ * per-chat outboxes; then batch assembly) without sending.
+ * One operation is one log line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogBatchBenchmark {
+
+    private static final int LINES = 2000;
+    private static final int MESSAGE_LIMIT = 4096;
+    private static final String DROPPED_NOTICE = "Dropped log lines: ";
+
+    @Param({"1", "8"})
+    public int subscribers;
+
+    // 0 forwards every line; with a window, repeats of a corpus line (numbers ignored) are only counted, as in a flood.
+    @Param({"0", "10000"})
+    public long coalesceMillis;
+
+    private LogCorpus corpus;
+    private String[] lines;
+    private LogRingBuffer ring;
+    private LogOutbox[] outboxes;
+    private LogRouter router;
+
+    @Setup
+    public void setUp() {
+        corpus = LogCorpus.load();
+        lines = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            int source = i % corpus.size();
+            lines[i] = "[" + corpus.levels[source].getName() + "] " + corpus.messages[source] + " #" + i;
+        }
+
+        LogFilter logFilter = new LogFilter(LogFilter.DEFAULT_KEYWORDS, Collections.emptyList(), Collections.emptyList());
+        List<LogSubscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions.add(new LogSubscription(i, Level.ALL, "", Collections.emptyList(), false, false));
+        }
+        LogFanout fanout = new LogFanout(subscriptions);
+        ring = new LogRingBuffer(8192);
+        outboxes = new LogOutbox[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            outboxes[i] = new LogOutbox(i);
+        }
+        router = new LogRouter(fanout, outboxes, 512, coalesceMillis, MESSAGE_LIMIT - 1, new Metrics());
+        router.configure(logFilter, LINES, false);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void assemble(Blackhole blackhole) {
+        LogOutbox outbox = new LogOutbox(0);
+        for (String line : lines) {
+            outbox.enqueue(line, LINES, false);
+        }
+        while (!outbox.isEmpty()) {
+            blackhole.consume(outbox.nextBatch(MESSAGE_LIMIT, DROPPED_NOTICE));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void processQueue(Blackhole blackhole) {
+        for (int i = 0; i < LINES; i++) {
+            int source = i % corpus.size();
+            ring.offer(corpus.levels[source], corpus.loggerNames[source], corpus.messages[source] + " #" + i, i);
+        }
+        ring.drain(router, LINES);
+        router.flushExpired(Long.MAX_VALUE);
+        for (LogOutbox outbox : outboxes) {
+            while (!outbox.isEmpty()) {
+                blackhole.consume(outbox.nextBatch(MESSAGE_LIMIT, DROPPED_NOTICE));
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package me.drazz.telegramremote.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Log records a busy Spigot server writes (joins, chat, commands, lag warnings, plugin noise,
+ * stack traces), loaded from server-log-corpus.txt as logger|level|message lines.
+ */
+final class LogCorpus {
+
+    final String[] loggerNames;
+    final Level[] levels;
+    final String[] messages;
+
+    private LogCorpus(List<String[]> records) {
+        int size = records.size();
+        loggerNames = new String[size];
+        levels = new Level[size];
+        messages = new String[size];
+        for (int i = 0; i < size; i++) {
+            String[] record = records.get(i);
+            loggerNames[i] = record[0];
+            levels[i] = Level.parse(record[1]);
+            messages[i] = record[2];
+        }
+    }
+
+    static LogCorpus load() {
+        List<String[]> records = new ArrayList<>();
+        try (InputStream in = LogCorpus.class.getResourceAsStream("/server-log-corpus.txt")) {
+            if (in == null) {
+                throw new IllegalStateException("server-log-corpus.txt is missing");
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                records.add(line.split("\\|", 3));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new LogCorpus(records);
+    }
+
+    int size() {
+        return messages.length;
+    }
+}
@@ -0,0 +1,115 @@
+package me.drazz.telegramremote.benchmarks;
+
+import me.drazz.telegramremote.logs.LogFanout;
+import me.drazz.telegramremote.logs.LogFilter;
+import me.drazz.telegramremote.logs.LogSubscription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+
+/**
+ * Filter throughput over the server log corpus: the important-event check on its own and the
+ * per-subscriber recipient mask the handler computes for every record. One operation is one record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogFilterBenchmark {
+
+    private static final int RECORDS = 1024;
+
+    // "default" is the shipped filter, "custom" adds logger prefixes and regex patterns on top.
+    @Param({"default", "custom"})
+    public String filter;
+
+    @Param({"1", "8", "64"})
+    public int subscribers;
+
+    private LogFilter logFilter;
+    private LogFanout fanout;
+    private Level[] levels;
+    private String[] loggerNames;
+    private String[] messages;
+
+    @Setup
+    public void setUp() {
+        if (filter.equals("custom")) {
+            List<String> keywords = new ArrayList<>(LogFilter.DEFAULT_KEYWORDS);
+            keywords.addAll(Arrays.asList("banned", "overloaded", "whitelist", "issued server command"));
+            logFilter = new LogFilter(keywords,
+                    Arrays.asList(Pattern.compile("moved (too quickly|wrongly)", Pattern.CASE_INSENSITIVE),
+                            Pattern.compile("\\bdied\\b", Pattern.CASE_INSENSITIVE)),
+                    Arrays.asList("com.sk89q", "net.coreprotect"));
+        } else {
+            logFilter = new LogFilter(LogFilter.DEFAULT_KEYWORDS, Collections.emptyList(), Collections.emptyList());
+        }
+
+        // Subscribers cycle through the shapes the /logs command produces.
+        List<LogSubscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            switch (i % 4) {
+                case 0:
+                    subscriptions.add(new LogSubscription(i, Level.ALL, "", Collections.emptyList(), true, false));
+                    break;
+                case 1:
+                    subscriptions.add(new LogSubscription(i, Level.WARNING, "", Collections.emptyList(), false, false));
+                    break;
+                case 2:
+                    subscriptions.add(new LogSubscription(i, Level.INFO, "", Arrays.asList("joined", "left the game", "player" + i), false, false));
+                    break;
+                default:
+                    subscriptions.add(new LogSubscription(i, Level.ALL, "Minecraft", Arrays.asList("Essentials", "issued server command"), false, false));
+                    break;
+            }
+        }
+        fanout = new LogFanout(subscriptions);
+
+        LogCorpus corpus = LogCorpus.load();
+        levels = new Level[RECORDS];
+        loggerNames = new String[RECORDS];
+        messages = new String[RECORDS];
+        for (int i = 0; i < RECORDS; i++) {
+            int source = i % corpus.size();
+            levels[i] = corpus.levels[source];
+            loggerNames[i] = corpus.loggerNames[source];
+            messages[i] = corpus.messages[source];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void isImportant(Blackhole blackhole) {
+        for (int i = 0; i < RECORDS; i++) {
+            blackhole.consume(logFilter.isImportant(loggerNames[i], messages[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void recipients(Blackhole blackhole) {
+        for (int i = 0; i < RECORDS; i++) {
+            blackhole.consume(fanout.recipients(levels[i], loggerNames[i], messages[i], logFilter));
+        }
+    }
+}
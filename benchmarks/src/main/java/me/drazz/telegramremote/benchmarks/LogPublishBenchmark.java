@@ -0,0 +1,93 @@
+package me.drazz.telegramremote.benchmarks;
+
+import me.drazz.telegramremote.logs.LogRingBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What TelegramLogHandler.publish costs the threads that log: claiming a slot in the ring buffer and
+ * copying the record fields, with several logging threads competing for the cursor while the handler
+ * thread drains. The "full" group measures the drop path taken when the drainer falls behind.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogPublishBenchmark {
+
+    private static final int RING_CAPACITY = 8192;
+
+    @State(Scope.Group)
+    public static class Ring {
+        LogRingBuffer ring;
+        LogCorpus corpus;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            ring = new LogRingBuffer(RING_CAPACITY);
+            corpus = LogCorpus.load();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Group("single")
+    @GroupThreads(1)
+    public boolean singleProducer(Ring state, Cursor cursor) {
+        return offer(state, cursor);
+    }
+
+    @Benchmark
+    @Group("single")
+    @GroupThreads(1)
+    public int singleDrain(Ring state, Blackhole blackhole) {
+        return state.ring.drain((level, logger, message, millis) -> blackhole.consume(message), 256);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(4)
+    public boolean contendedProducer(Ring state, Cursor cursor) {
+        return offer(state, cursor);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public int contendedDrain(Ring state, Blackhole blackhole) {
+        return state.ring.drain((level, logger, message, millis) -> blackhole.consume(message), 256);
+    }
+
+    @Benchmark
+    @Group("full")
+    @GroupThreads(4)
+    public boolean fullProducer(Ring state, Cursor cursor) {
+        return offer(state, cursor);
+    }
+
+    private static boolean offer(Ring state, Cursor cursor) {
+        LogCorpus corpus = state.corpus;
+        int i = cursor.next;
+        cursor.next = i + 1 == corpus.size() ? 0 : i + 1;
+        return state.ring.offer(corpus.levels[i], corpus.loggerNames[i], corpus.messages[i], 0L);
+    }
+}
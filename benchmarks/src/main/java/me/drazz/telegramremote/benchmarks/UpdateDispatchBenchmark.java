@@ -0,0 +1,206 @@
+package me.drazz.telegramremote.benchmarks;
+
+import me.drazz.telegramremote.TelegramLogHandler;
+import me.drazz.telegramremote.bot.BotRoutes;
+import me.drazz.telegramremote.bot.ChatSerialExecutor;
+import me.drazz.telegramremote.bot.ChatState;
+import me.drazz.telegramremote.bot.ConsoleOutputPager;
+import me.drazz.telegramremote.bot.UpdateRouter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of getting an update to its handler, the two steps of Main_BOT.onUpdateReceived:
+ * routing text and callback data to a handler, and handing the update to the per-chat
+ * serial executor. Handlers are no-ops, so nothing here talks to Telegram.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UpdateDispatchBenchmark {
+
+    private static final int BATCH = 64;
+    private static final String[] TEXTS = {"/start", "/logs level WARNING", "/QUIT", "/status", "say hello", "list", "123456789"};
+    private static final ChatState[] TEXT_STATES = {ChatState.DEFAULT, ChatState.DEFAULT, ChatState.CONSOLE_MODE,
+            ChatState.DEFAULT, ChatState.CONSOLE_MODE, ChatState.CONSOLE_MODE, ChatState.ADMIN_ADD};
+    private static final String[] CALLBACKS = {"bot_settings", "enable_console_button", ConsoleOutputPager.NEXT_PAGE,
+            "notification_op", "log_mode_all", "confirm_yes_reload", "unknown"};
+    private static final ChatState[] CALLBACK_STATES = {ChatState.ADMIN_MENU, ChatState.BOT_SETTINGS, ChatState.CONSOLE_MODE,
+            ChatState.NOTIFICATIONS_MENU, ChatState.LOG_SETTINGS, ChatState.CONFIRM_RELOAD, ChatState.DEFAULT};
+
+    @Param({"1", "16", "256"})
+    public int chats;
+
+    private UpdateRouter router;
+    private ChatSerialExecutor executor;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // The bot's own route table; localized buttons need the plugin's messages and stay unresolved.
+        router = BotRoutes.create(new NoOpActions());
+
+        executor = new ChatSerialExecutor(4);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public boolean routeText() {
+        int i = next++ % TEXTS.length;
+        return router.routeText(i, TEXT_STATES[i], TEXTS[i]);
+    }
+
+    @Benchmark
+    public boolean routeCallback() {
+        int i = next++ % CALLBACKS.length;
+        return router.routeCallback(i, CALLBACK_STATES[i], CALLBACKS[i]);
+    }
+
+    // A burst of updates spread over the chats, timed until every one has run.
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void dispatch() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            long chatId = next++ % chats;
+            executor.execute(chatId, done::countDown);
+        }
+        done.await();
+    }
+
+    // Routing returns whether a handler was found, so empty handlers leave nothing for the JIT to remove.
+    private static final class NoOpActions implements BotRoutes.Actions {
+        @Override
+        public void start(long chatId) {
+        }
+
+        @Override
+        public void quitConsole(long chatId) {
+        }
+
+        @Override
+        public void logsCommand(long chatId, String text) {
+        }
+
+        @Override
+        public void serverStatus(long chatId) {
+        }
+
+        @Override
+        public void profileCommand(long chatId, String text) {
+        }
+
+        @Override
+        public void stats(long chatId) {
+        }
+
+        @Override
+        public void adminPanel(long chatId) {
+        }
+
+        @Override
+        public void consoleMenu(long chatId) {
+        }
+
+        @Override
+        public void logSettingsMenu(long chatId) {
+        }
+
+        @Override
+        public void consoleInput(long chatId, String text) {
+        }
+
+        @Override
+        public void adminAdd(long chatId, String text) {
+        }
+
+        @Override
+        public void reloadPlugin(long chatId) {
+        }
+
+        @Override
+        public void turnPage(long chatId, int delta) {
+        }
+
+        @Override
+        public void botSettings(long chatId) {
+        }
+
+        @Override
+        public void confirmReload(long chatId) {
+        }
+
+        @Override
+        public void confirmRestart(long chatId) {
+        }
+
+        @Override
+        public void confirmShutdown(long chatId) {
+        }
+
+        @Override
+        public void toggleConsole(long chatId) {
+        }
+
+        @Override
+        public void toggleUpdateCheck(long chatId) {
+        }
+
+        @Override
+        public void toggleLanguage(long chatId) {
+        }
+
+        @Override
+        public void notificationsMenu(long chatId) {
+        }
+
+        @Override
+        public void askAdminId(long chatId) {
+        }
+
+        @Override
+        public void toggleNotification(long chatId, String data) {
+        }
+
+        @Override
+        public void changeLogMode(long chatId, TelegramLogHandler.LogMode mode) {
+        }
+
+        @Override
+        public void reload(long chatId) {
+        }
+
+        @Override
+        public void restart(long chatId) {
+        }
+
+        @Override
+        public void shutdown(long chatId) {
+        }
+
+        @Override
+        public void cancelConfirm(long chatId) {
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package me.drazz.telegramremote;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+/**
+ * Current set of admin chat IDs. Readers get an immutable snapshot backed by a primitive
+ * open-addressing table; the snapshot is replaced as a whole when the config is reloaded
+ * or an admin is added.
+ */
+public class AdminRegistry {
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(new long[0]));
+
+    public void reload(FileConfiguration config) {
+        List<Long> ids = config.getLongList("telegram.admin_ids");
+        long[] values = new long[ids.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = ids.get(i);
+        }
+        snapshot.set(new Snapshot(values));
+    }
+
+    public void add(long chatId, SettingsStore settings) {
+        Snapshot current;
+        Snapshot updated;
+        do {
+            current = snapshot.get();
+            if (current.contains(chatId)) {
+                return;
+            }
+            long[] values = Arrays.copyOf(current.ids, current.ids.length + 1);
+            values[values.length - 1] = chatId;
+            updated = new Snapshot(values);
+        } while (!snapshot.compareAndSet(current, updated));
+
+        // Under the lock the latest snapshot is written, so a slower add cannot save an older list.
+        synchronized (this) {
+            long[] ids = snapshot.get().ids;
+            List<Long> configIds = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                configIds.add(id);
+            }
+            settings.set("telegram.admin_ids", configIds);
+        }
+    }
+
+    public boolean contains(long chatId) {
+        return snapshot.get().contains(chatId);
+    }
+
+    public Snapshot get() {
+        return snapshot.get();
+    }
+
+    public static final class Snapshot {
+        private static final long EMPTY = 0L;
+
+        private final long[] ids;
+        private final long[] table;
+        private final int mask;
+        private final boolean containsZero;
+
+        private Snapshot(long[] ids) {
+            long[] unique = Arrays.stream(ids).distinct().toArray();
+            this.ids = unique;
+            int capacity = 4;
+            while (capacity < unique.length * 2) {
+                capacity <<= 1;
+            }
+            this.table = new long[capacity];
+            this.mask = capacity - 1;
+            boolean zero = false;
+            for (long id : unique) {
+                if (id == EMPTY) {
+                    zero = true;
+                    continue;
+                }
+                int index = mix(id) & mask;
+                while (table[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = id;
+            }
+            this.containsZero = zero;
+        }
+
+        public boolean contains(long chatId) {
+            if (chatId == EMPTY) {
+                return containsZero;
+            }
+            int index = mix(chatId) & mask;
+            long value;
+            while ((value = table[index]) != EMPTY) {
+                if (value == chatId) {
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+            return false;
+        }
+
+        public boolean isEmpty() {
+            return ids.length == 0;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public void forEach(LongConsumer action) {
+            for (long id : ids) {
+                action.accept(id);
+            }
+        }
+
+        private static int mix(long value) {
+            long h = value * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -13,7 +13,6 @@
  */
 package me.drazz.telegramremote;
 
-import me.drazz.telegramremote.bot.Main_BOT;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.bukkit.scheduler.BukkitRunnable;
@@ -25,15 +24,12 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.List;
 
 
 public class CheckUpdate {
     private static CheckUpdate instance;
-    Main_BOT telegramBot = new Main_BOT();
     private JavaPlugin plugin;
     private String currentVersion;
-    private List<Long> adminChatIds;
     String enable_check_upd;
 
     public CheckUpdate(JavaPlugin plugin, String currentVersion) {
@@ -55,7 +51,6 @@ public class CheckUpdate {
 
     public void loadConfig() {
         FileConfiguration config = TelegramRemote.getInstance().getConfig();
-        adminChatIds = config.getLongList("telegram.admin_ids");
         enable_check_upd = config.getString("telegram.notifications.enable_update");
     }
 
@@ -80,9 +75,8 @@ public class CheckUpdate {
             if (!currentVersion.equals(latestVersion)) {
                 plugin.getLogger().info("New version of the plugin is available! Current version: " + currentVersion + ", A new version: " + latestVersion);
                 if (enable_check_upd != null && enable_check_upd.equals("true")) {
-                        for (Long adminChatId : adminChatIds) {
-                            telegramBot.sendMsg(adminChatId, TelegramRemote.getMessage("messages.update.upd_text") + currentVersion + TelegramRemote.getMessage("messages.update.upd_text_two") + latestVersion);
-                        }
+                        String text = TelegramRemote.getMessage("messages.update.upd_text") + currentVersion + TelegramRemote.getMessage("messages.update.upd_text_two") + latestVersion;
+                        TelegramRemote.getInstance().getTelegramBot().getBroadcaster().broadcast(TelegramRemote.getInstance().getAdmins().get(), text);
                     }
             }
             else {
@@ -0,0 +1,164 @@
+package me.drazz.telegramremote;
+
+import org.bukkit.configuration.Configuration;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind persistence for settings changed at runtime. The loaded config is never modified
+ * in place, since the main thread and the bot threads read it without a lock: a change builds a
+ * new config that copies only the sections on the changed paths and shares everything else with
+ * the current one, and that config then replaces the current one atomically. Keys the user's file
+ * lacks are read from the bundled config.yml as defaults, never written. The file is rewritten
+ * once per burst on the writer thread, through a temp file that replaces config.yml atomically.
+ */
+public class SettingsStore {
+
+    private static final long WRITE_DELAY_MILLIS = 2000;
+
+    private final TelegramRemote plugin;
+    private final Object writeLock = new Object();
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "TelegramRemote-Settings");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Configuration bundledDefaults;
+    private boolean dirty;
+    private boolean writeScheduled;
+
+    public SettingsStore(TelegramRemote plugin) {
+        this.plugin = plugin;
+    }
+
+    public void set(String path, Object value) {
+        update(values -> values.put(path, value));
+    }
+
+    // The change puts path -> value pairs (null removes the path) into the map it is given.
+    public void update(Consumer<Map<String, Object>> change) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        change.accept(values);
+        if (values.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            FileConfiguration updated = new Snapshot(defaults());
+            copyShared(plugin.getConfig(), updated, "", values.keySet());
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                updated.set(entry.getKey(), entry.getValue());
+            }
+            plugin.replaceConfig(updated);
+            dirty = true;
+            if (!writeScheduled) {
+                writeScheduled = true;
+                writer.schedule(this::flush, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // Sections no changed path goes through are shared as they are; the ones on a changed path are copied one level down.
+    private static void copyShared(ConfigurationSection from, ConfigurationSection to, String prefix, Set<String> changed) {
+        for (String key : from.getKeys(false)) {
+            String path = prefix + key;
+            if (changed.contains(path)) {
+                continue;
+            }
+            Object value = from.get(key);
+            if (value instanceof ConfigurationSection && isOnChangedPath(path, changed)) {
+                copyShared((ConfigurationSection) value, to, path + ".", changed);
+            } else {
+                to.set(path, value);
+            }
+        }
+    }
+
+    private static boolean isOnChangedPath(String sectionPath, Set<String> changed) {
+        for (String path : changed) {
+            if (path.startsWith(sectionPath) && path.length() > sectionPath.length() && path.charAt(sectionPath.length()) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Configuration defaults() {
+        if (bundledDefaults == null) {
+            InputStream resource = plugin.getBundledConfig();
+            bundledDefaults = resource != null
+                    ? YamlConfiguration.loadConfiguration(new InputStreamReader(resource, StandardCharsets.UTF_8))
+                    : new YamlConfiguration();
+        }
+        return bundledDefaults;
+    }
+
+    public void flush() {
+        synchronized (writeLock) {
+            String yaml;
+            synchronized (this) {
+                writeScheduled = false;
+                if (!dirty) {
+                    return;
+                }
+                dirty = false;
+                yaml = plugin.getConfig().saveToString();
+            }
+
+            Path target = new File(plugin.getDataFolder(), "config.yml").toPath();
+            Path temp = target.resolveSibling("config.yml.tmp");
+            try {
+                Files.write(temp, yaml.getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Could not save config.yml: " + e.getMessage());
+                synchronized (this) {
+                    dirty = true;
+                }
+            }
+        }
+    }
+
+    public void shutdown() {
+        writer.shutdownNow();
+        flush();
+    }
+
+    /**
+     * A config published by {@link #update}. Its defaults are the bundled config.yml, the same layer
+     * JavaPlugin puts under the config it loads; they are read through but never saved.
+     */
+    private static final class Snapshot extends YamlConfiguration {
+        private final Configuration defaults;
+
+        private Snapshot(Configuration defaults) {
+            this.defaults = defaults;
+        }
+
+        public Configuration getDefaults() {
+            return defaults;
+        }
+    }
+}
@@ -1,169 +1,371 @@
 package me.drazz.telegramremote;
 
 import me.drazz.telegramremote.bot.Main_BOT;
+import me.drazz.telegramremote.logs.LogFanout;
+import me.drazz.telegramremote.logs.LogFilter;
+import me.drazz.telegramremote.logs.LogOutbox;
+import me.drazz.telegramremote.logs.LogRingBuffer;
+import me.drazz.telegramremote.logs.LogRouter;
+import me.drazz.telegramremote.logs.LogSubscription;
+import me.drazz.telegramremote.metrics.Counter;
+import me.drazz.telegramremote.metrics.Metrics;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 
-import java.util.HashSet;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Queue;
-import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 import java.util.logging.Handler;
+import java.util.logging.Level;
 import java.util.logging.LogRecord;
+import java.util.zip.GZIPOutputStream;
 
 public class TelegramLogHandler extends Handler {
 
     private final Main_BOT telegramBot;
     private final TelegramRemote plugin;
+    private final Metrics metrics;
     private boolean logsEnabled = false;
-    private List<Long> adminChatIds;
-    private boolean isProcessingLog = false;
-    private LogMode logMode = LogMode.IMPORTANT_ONLY;
-    
-    private final Queue<String> logQueue = new ConcurrentLinkedQueue<>();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    private static final int MAX_LOGS_PER_BATCH = 5;
-    private static final int BATCH_INTERVAL_SECONDS = 2;
-    
-    private static final Set<String> IMPORTANT_EVENTS = new HashSet<>();
-    
+    private final ThreadLocal<boolean[]> insideHandler = ThreadLocal.withInitial(() -> new boolean[1]);
+    private volatile LogMode logMode = LogMode.IMPORTANT_ONLY;
+    private volatile LogFilter logFilter;
+    private volatile long coalesceWindow;
+
+    private final LogRingBuffer ring = new LogRingBuffer(RING_CAPACITY);
+    private volatile int bufferSize = DEFAULT_BUFFER_SIZE;
+    private volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+    private volatile int documentThreshold;
+    private final Map<Long, LogSubscription> subscriptions = new ConcurrentHashMap<>();
+    private volatile boolean fanoutChanged = true;
+    private volatile LogFanout fanout = LogFanout.EMPTY;
+
+    // Only touched on the scheduler thread.
+    private AdminRegistry.Snapshot fanoutAdmins;
+    private LogRouter router;
+    private long lastFailureLogged;
+    private int failuresNotLogged;
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1, r -> new Thread(r, "TelegramRemote-Logs"));
+    private static final int MESSAGE_LIMIT = 4096;
+    private static final int DEFAULT_BUFFER_SIZE = 2000;
+    private static final int RING_CAPACITY = 8192;
+    private static final int COALESCE_FINGERPRINTS = 512;
+    private static final long FLUSH_CHECK_MILLIS = 250;
+    private static final long MAX_BATCH_AGE_MILLIS = 2000;
+    private static final long FAILURE_LOG_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final String SUBSCRIPTIONS_PATH = "telegram.notifications.log_subscriptions";
+
+
     public enum LogMode {
         DISABLED,
         IMPORTANT_ONLY,
         ALL_LOGS
     }
-    
-    static {
-        IMPORTANT_EVENTS.add("logged in");
-        IMPORTANT_EVENTS.add("joined");
-        IMPORTANT_EVENTS.add("left the game");
-        IMPORTANT_EVENTS.add("said");
-        IMPORTANT_EVENTS.add("chat");
-        IMPORTANT_EVENTS.add("CHAT");
-        IMPORTANT_EVENTS.add("message");
-    }
-    
+
+    public enum OverflowPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST
+    }
+
     public TelegramLogHandler(TelegramRemote plugin, Main_BOT telegramBot) {
         this.plugin = plugin;
         this.telegramBot = telegramBot;
+        this.metrics = plugin.getMetrics();
         loadConfig();
-        
-        scheduler.scheduleAtFixedRate(this::processLogQueue, 
-                                     BATCH_INTERVAL_SECONDS, 
-                                     BATCH_INTERVAL_SECONDS, 
-                                     TimeUnit.SECONDS);
+        rebuildFanout();
+
+        scheduler.scheduleWithFixedDelay(this::processLogQueue,
+                                     FLUSH_CHECK_MILLIS,
+                                     FLUSH_CHECK_MILLIS,
+                                     TimeUnit.MILLISECONDS);
     }
 
     public void loadConfig() {
         FileConfiguration config = plugin.getConfig();
         logsEnabled = config.getBoolean("telegram.notifications.enable_server_logs", false);
-        adminChatIds = config.getLongList("telegram.admin_ids");
-        
+
+        logFilter = LogFilter.fromConfig(config.getConfigurationSection("telegram.notifications.log_filter"), plugin.getLogger());
+        coalesceWindow = TimeUnit.SECONDS.toMillis(config.getLong("telegram.notifications.log_coalesce_seconds", 10));
+
         String modeStr = config.getString("telegram.notifications.log_mode", "IMPORTANT_ONLY");
         try {
             logMode = LogMode.valueOf(modeStr);
         } catch (IllegalArgumentException e) {
             logMode = LogMode.IMPORTANT_ONLY;
         }
+
+        try {
+            overflowPolicy = OverflowPolicy.valueOf(config.getString("telegram.notifications.log_overflow", "DROP_OLDEST"));
+        } catch (IllegalArgumentException e) {
+            overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        }
+
+        documentThreshold = config.getInt("telegram.notifications.log_document_threshold", 300);
+        bufferSize = Math.max(1, config.getInt("telegram.notifications.log_buffer_size", DEFAULT_BUFFER_SIZE));
+
+        Map<Long, LogSubscription> loaded = new HashMap<>();
+        ConfigurationSection section = config.getConfigurationSection(SUBSCRIPTIONS_PATH);
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                ConfigurationSection entry = section.getConfigurationSection(key);
+                try {
+                    long chatId = Long.parseLong(key);
+                    if (entry != null) {
+                        loaded.put(chatId, LogSubscription.fromConfig(chatId, entry));
+                    }
+                } catch (NumberFormatException e) {
+                    plugin.getLogger().warning("Invalid chat ID in " + SUBSCRIPTIONS_PATH + ": " + key);
+                }
+            }
+        }
+        subscriptions.keySet().retainAll(loaded.keySet());
+        subscriptions.putAll(loaded);
+        fanoutChanged = true;
     }
-    
+
     public void setLogMode(LogMode mode) {
         this.logMode = mode;
         logsEnabled = (mode != LogMode.DISABLED);
-        
-        FileConfiguration config = plugin.getConfig();
-        config.set("telegram.notifications.enable_server_logs", logsEnabled);
-        config.set("telegram.notifications.log_mode", mode.name());
-        plugin.saveConfig();
+        fanoutChanged = true;
+
+        boolean enabled = logsEnabled;
+        plugin.getSettings().update(values -> {
+            values.put("telegram.notifications.enable_server_logs", enabled);
+            values.put("telegram.notifications.log_mode", mode.name());
+        });
     }
 
     public LogMode getLogMode() {
         return logMode;
     }
 
+    // Chats without a subscription of their own follow the global log mode.
+    public LogSubscription getSubscription(long chatId) {
+        LogSubscription subscription = subscriptions.get(chatId);
+        return subscription != null ? subscription : defaultSubscription(chatId);
+    }
+
+    public LogSubscription updateSubscription(long chatId, UnaryOperator<LogSubscription> change) {
+        LogSubscription updated = subscriptions.compute(chatId,
+                (id, current) -> change.apply(current != null ? current : defaultSubscription(id)));
+        fanoutChanged = true;
+        plugin.getSettings().update(values -> updated.save(values, SUBSCRIPTIONS_PATH + "." + chatId));
+        return updated;
+    }
+
+    public void resetSubscription(long chatId) {
+        subscriptions.remove(chatId);
+        fanoutChanged = true;
+        plugin.getSettings().set(SUBSCRIPTIONS_PATH + "." + chatId, null);
+    }
+
+    private LogSubscription defaultSubscription(long chatId) {
+        LogMode mode = logMode;
+        Level level = mode == LogMode.DISABLED ? Level.OFF : Level.ALL;
+        return new LogSubscription(chatId, level, "", Collections.emptyList(), mode == LogMode.IMPORTANT_ONLY, false);
+    }
+
+    // Runs on every thread that logs: only copies the record fields into the ring buffer.
+    // Filtering and formatting happen on the handler's own thread in LogRouter.
     @Override
     public void publish(LogRecord record) {
-        if (logMode == LogMode.DISABLED || record == null || isProcessingLog) {
+        if (fanout.isEmpty() || record == null) {
             return;
         }
-        
-        if (isInternalBotLog(record.getLoggerName(), record.getMessage())) {
+
+        boolean[] inside = insideHandler.get();
+        if (inside[0]) {
             return;
         }
+        inside[0] = true;
+        try {
+            if (ring.offer(record.getLevel(), record.getLoggerName(), record.getMessage(), record.getMillis())) {
+                metrics.logsPublished.increment();
+            }
+        } finally {
+            inside[0] = false;
+        }
+    }
 
-        if (logMode == LogMode.IMPORTANT_ONLY && !isImportantEvent(record.getMessage())) {
-            return;
+    // Runs on the scheduler thread. Keeps the queue of a chat that is still subscribed, so changing
+    // one subscription does not throw away what the others have pending.
+    private void rebuildFanout() {
+        AdminRegistry.Snapshot admins = plugin.getAdmins().get();
+        List<LogSubscription> active = new ArrayList<>();
+        admins.forEach(chatId -> {
+            LogSubscription subscription = getSubscription(chatId);
+            if (subscription.isActive()) {
+                active.add(subscription);
+            }
+        });
+        if (active.size() > LogFanout.MAX_SUBSCRIBERS) {
+            plugin.getLogger().warning("Only the first " + LogFanout.MAX_SUBSCRIBERS + " log subscribers receive logs");
+        }
+
+        LogFanout rebuilt = new LogFanout(active);
+        Map<Long, LogOutbox> previous = new HashMap<>();
+        if (router != null) {
+            for (LogOutbox outbox : router.getOutboxes()) {
+                previous.put(outbox.getChatId(), outbox);
+            }
+        }
+        LogOutbox[] rebuiltOutboxes = new LogOutbox[rebuilt.size()];
+        for (int i = 0; i < rebuiltOutboxes.length; i++) {
+            long chatId = rebuilt.chatId(i);
+            LogOutbox outbox = previous.get(chatId);
+            rebuiltOutboxes[i] = outbox != null ? outbox : new LogOutbox(chatId);
         }
 
+        // Pending "(xN)" counts of the old router still go to the old outboxes, which the chats that stay subscribed keep.
+        if (router != null) {
+            router.flushAll();
+        }
+        router = new LogRouter(rebuilt, rebuiltOutboxes, COALESCE_FINGERPRINTS, coalesceWindow, MESSAGE_LIMIT - 1, metrics);
+        fanoutAdmins = admins;
+        fanout = rebuilt;
+    }
+
+    // Packs queued lines into messages of up to MESSAGE_LIMIT chars. A batch is sent once it is full
+    // or its oldest line has waited MAX_BATCH_AGE_MILLIS, and only after the previous batch to the same
+    // chat was delivered, so batches grow on their own while that chat is slow.
+    private void processLogQueue() {
+        boolean[] inside = insideHandler.get();
+        inside[0] = true;
         try {
-            isProcessingLog = true;
-            
-            String formattedMessage = String.format("[%s] %s", record.getLevel().getName(), record.getMessage());
-            logQueue.add(formattedMessage);
-            
+            if (fanoutChanged || plugin.getAdmins().get() != fanoutAdmins) {
+                fanoutChanged = false;
+                rebuildFanout();
+            }
+
+            router.configure(logFilter, bufferSize, overflowPolicy == OverflowPolicy.DROP_NEWEST);
+            ring.drain(router, RING_CAPACITY);
+            long now = System.currentTimeMillis();
+            router.flushExpired(now);
+            long ringDropped = ring.takeDropped();
+            metrics.logsDroppedRing.add(ringDropped);
+
+            for (LogOutbox outbox : router.getOutboxes()) {
+                outbox.addDropped(ringDropped);
+                flushOutbox(outbox, now);
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the scheduled task for good, so log it (at most once a minute) and carry on.
+            logFailure(e);
         } finally {
-            isProcessingLog = false;
+            inside[0] = false;
         }
     }
-    
-    private void processLogQueue() {
-        if (logMode == LogMode.DISABLED || logQueue.isEmpty() || adminChatIds.isEmpty()) {
+
+    private void logFailure(RuntimeException e) {
+        long now = System.currentTimeMillis();
+        if (lastFailureLogged != 0 && now - lastFailureLogged < FAILURE_LOG_INTERVAL_MILLIS) {
+            failuresNotLogged++;
             return;
         }
-        
-        StringBuilder batchMessage = new StringBuilder();
-        int count = 0;
-        
-        while (!logQueue.isEmpty() && count < MAX_LOGS_PER_BATCH) {
-            String log = logQueue.poll();
-            if (log != null) {
-                batchMessage.append(log).append("\n");
-                count++;
-            }
+        String skipped = failuresNotLogged > 0 ? " (" + failuresNotLogged + " more since the last report)" : "";
+        plugin.getLogger().log(Level.WARNING, "Log forwarding failed" + skipped, e);
+        lastFailureLogged = now;
+        failuresNotLogged = 0;
+    }
+
+    private void flushOutbox(LogOutbox outbox, long now) {
+        if (outbox.isEmpty()) {
+            outbox.setPendingSince(0);
+            return;
         }
-        
-        if (count > 0) {
-            String message = batchMessage.toString();
-            for (Long chatId : adminChatIds) {
-                telegramBot.sendSilentMsg(chatId, message);
-            }
+        if (outbox.getPendingSince() == 0) {
+            outbox.setPendingSince(now);
+        }
+        // A suspended chat keeps at most bufferSize lines until its circuit lets a probe through.
+        if (outbox.isInFlight() || telegramBot.getBroadcaster().isSuspended(outbox.getChatId())) {
+            return;
         }
+
+        // A large backlog goes out as one compressed file instead of hundreds of messages.
+        int threshold = documentThreshold;
+        if (threshold > 0 && outbox.size() >= threshold) {
+            sendBacklogDocument(outbox);
+            outbox.setPendingSince(outbox.isEmpty() ? 0 : now);
+            return;
+        }
+
+        if (!outbox.isFull(MESSAGE_LIMIT) && now - outbox.getPendingSince() < MAX_BATCH_AGE_MILLIS) {
+            return;
+        }
+
+        String message = outbox.nextBatch(MESSAGE_LIMIT, TelegramRemote.getMessage("messages.telegram.logs_dropped"));
+        if (message.isEmpty()) {
+            return;
+        }
+        outbox.setPendingSince(outbox.isEmpty() ? 0 : now);
+        track(outbox, telegramBot.getBroadcaster().send(outbox.getChatId(), message, true), metrics.logBatchesSent, null);
     }
-    
-    private boolean isInternalBotLog(String loggerName, String message) {
-        if (message != null && (
-                message.contains("Message not delivered") ||
-                message.contains("TG-Console") ||
-                message.contains("Unable to execute") ||
-                message.contains("TelegramLogHandler"))) {
-            return true;
-        }
-        
-        if (loggerName != null && (
-                loggerName.equals("org.telegram.telegrambots") ||
-                loggerName.contains("telegrambots") ||
-                loggerName.contains("TelegramLongPollingBot"))) {
-            return true;
-        }
-        
-        return false;
-    }
-    
-    private boolean isImportantEvent(String message) {
-        if (message == null) {
-            return false;
-        }
-        
-        for (String event : IMPORTANT_EVENTS) {
-            if (message.toLowerCase().contains(event.toLowerCase())) {
-                return true;
+
+    private void track(LogOutbox outbox, CompletableFuture<?> delivery, Counter delivered, Runnable onDone) {
+        outbox.setInFlight(true);
+        delivery.whenComplete((result, error) -> {
+            if (error == null) {
+                delivered.increment();
+            }
+            if (onDone != null) {
+                onDone.run();
+            }
+            outbox.setInFlight(false);
+        });
+    }
+
+    // Streams the lines queued right now through gzip into a temp file, so the backlog never has to fit in one string.
+    private void sendBacklogDocument(LogOutbox outbox) {
+        File file;
+        int lines = 0;
+        try {
+            file = File.createTempFile("telegramremote-logs", ".log.gz");
+        } catch (IOException e) {
+            plugin.getLogger().warning("Cannot create a temp file for the log backlog, sending it as messages until reload: " + e.getMessage());
+            documentThreshold = 0;
+            return;
+        }
+
+        long dropped = outbox.takeDropped();
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(file)), StandardCharsets.UTF_8))) {
+            if (dropped > 0) {
+                writer.write(TelegramRemote.getMessage("messages.telegram.logs_dropped") + dropped + "\n");
+            }
+            String log;
+            while ((log = outbox.poll()) != null) {
+                lines++;
+                writer.write(log);
+                writer.write('\n');
             }
+        } catch (IOException e) {
+            // The polled lines are gone; the chat at least learns how many it missed with its next batch.
+            plugin.getLogger().warning("Cannot write the log backlog file, " + lines + " lines dropped: " + e.getMessage());
+            outbox.addDropped(dropped + lines);
+            metrics.logsDroppedOutbox.add(lines);
+            file.delete();
+            return;
         }
-        
-        return false;
+
+        String fileName = "server-logs-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".log.gz";
+        String caption = TelegramRemote.getMessage("messages.telegram.logs_document") + lines;
+        track(outbox, telegramBot.getBroadcaster().sendDocument(outbox.getChatId(), file, fileName, caption, true), metrics.logDocumentsSent, file::delete);
     }
 
     @Override
@@ -182,8 +384,12 @@ public class TelegramLogHandler extends Handler {
             Thread.currentThread().interrupt();
         }
     }
-    
+
+    public int getPendingRecords() {
+        return ring.size();
+    }
+
     public boolean isLogsEnabled() {
         return logMode != LogMode.DISABLED;
     }
-}
\ No newline at end of file
+}
@@ -1,41 +1,83 @@
 package me.drazz.telegramremote;
 
 import me.drazz.telegramremote.bot.Main_BOT;
+import me.drazz.telegramremote.bot.OutboundDispatcher;
+import me.drazz.telegramremote.bot.WebhookServer;
 import me.drazz.telegramremote.commands.TR_CMD;
 import me.drazz.telegramremote.commands.TR_TabCompleter;
+import me.drazz.telegramremote.console.CommandRunner;
+import me.drazz.telegramremote.console.InProcessCommandRunner;
+import me.drazz.telegramremote.console.RconCommandRunner;
 import me.drazz.telegramremote.events.Notifications_Event;
+import me.drazz.telegramremote.metrics.Metrics;
+import me.drazz.telegramremote.metrics.MetricsServer;
+import me.drazz.telegramremote.perf.PerfSampler;
+import me.drazz.telegramremote.perf.SamplingProfiler;
+import me.drazz.telegramremote.perf.TickWatchdog;
+import me.drazz.telegramremote.rcon.RconSessionPool;
 
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
 import java.io.File;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public final class TelegramRemote extends JavaPlugin {
 
-    private Main_BOT telegramBot = new Main_BOT();
+    private Main_BOT telegramBot;
     private static TelegramRemote instance;
     private static YamlConfiguration messagesConfig;
     private TelegramLogHandler logHandler;
+    private RconSessionPool rconPool;
+    private WebhookServer webhookServer;
+    private MetricsServer metricsServer;
+    private PerfSampler perfSampler;
+    private TickWatchdog watchdog;
+    private SamplingProfiler profiler;
+    private CommandRunner inProcessRunner;
+    private CommandRunner rconRunner;
+    private final AdminRegistry admins = new AdminRegistry();
+    private final SettingsStore settings = new SettingsStore(this);
+    private final Metrics metrics = new Metrics();
+    // Never modified once published; SettingsStore swaps in an updated copy.
+    private volatile FileConfiguration config;
 
     @Override
     public void onEnable() {
         instance = this;
 
         saveDefaultConfig();
+        admins.reload(getConfig());
         loadMessagesConfig();
 
+        rconPool = new RconSessionPool(this);
+        inProcessRunner = new InProcessCommandRunner(this);
+        rconRunner = new RconCommandRunner(rconPool, metrics);
+        telegramBot = new Main_BOT();
+        registerGauges();
+
         Objects.requireNonNull(getCommand("telegramremote")).setExecutor(new TR_CMD());
         Objects.requireNonNull(getCommand("telegramremote")).setTabCompleter(new TR_TabCompleter());
         Bukkit.getPluginManager().registerEvents(new Notifications_Event(), this);
 
         try {
-            TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-            botsApi.registerBot(telegramBot);
+            if (getConfig().getBoolean("telegram.webhook.enable")) {
+                webhookServer = new WebhookServer(telegramBot, Objects.requireNonNull(getConfig().getConfigurationSection("telegram.webhook")));
+                webhookServer.start();
+            } else {
+                TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
+                botsApi.registerBot(telegramBot);
+            }
             getLogger().info("Bot launched successfully!");
             
             setupLogHandler();
@@ -46,6 +88,29 @@ public final class TelegramRemote extends JavaPlugin {
             e.printStackTrace();
         }
         
+        if (getConfig().getBoolean("telegram.status.enable", true)) {
+            perfSampler = new PerfSampler(this);
+            perfSampler.start();
+        }
+
+        if (getConfig().getBoolean("telegram.watchdog.enable", true)) {
+            watchdog = new TickWatchdog(this);
+            watchdog.start();
+        }
+
+        if (getConfig().getBoolean("telegram.profiler.enable", true)) {
+            profiler = new SamplingProfiler(this, Thread.currentThread());
+        }
+
+        if (getConfig().getBoolean("telegram.metrics.enable")) {
+            try {
+                metricsServer = new MetricsServer(metrics, Objects.requireNonNull(getConfig().getConfigurationSection("telegram.metrics")));
+                metricsServer.start();
+            } catch (Exception e) {
+                getLogger().warning("Failed to start the metrics endpoint: " + e.getMessage());
+            }
+        }
+
         if (getConfig().getBoolean("update.enable")) {
             String currentVersion = getDescription().getVersion();
             CheckUpdate checkUpdate = new CheckUpdate(this, currentVersion);
@@ -61,10 +126,68 @@ public final class TelegramRemote extends JavaPlugin {
             Logger rootLogger = getLogger().getParent();
             rootLogger.removeHandler(logHandler);
         }
-        
+
+        if (webhookServer != null) {
+            webhookServer.stop();
+        }
+
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
+
+        if (perfSampler != null) {
+            perfSampler.stop();
+        }
+
+        if (watchdog != null) {
+            watchdog.stop();
+        }
+
+        if (profiler != null) {
+            profiler.shutdown();
+        }
+
+        if (telegramBot != null) {
+            telegramBot.getUpdates().shutdown();
+            OutboundDispatcher outbound = telegramBot.getOutbound();
+            outbound.shutdown();
+            telegramBot.getSessions().shutdown();
+            long requests = metrics.telegramLatency.getCount();
+            getLogger().info("Telegram requests: " + requests + ", failed: " + metrics.telegramErrors.get()
+                    + ", average latency: " + (requests == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(metrics.telegramLatency.getSumNanos() / requests)) + " ms");
+        }
+
+        if (rconRunner != null) {
+            rconRunner.shutdown();
+        }
+
+        settings.shutdown();
+
         getLogger().info("Plugin disabled successfully!");
     }
 
+    private void registerGauges() {
+        metrics.gauge("telegram_outbound_queued", "Telegram API calls waiting to be sent", () -> telegramBot.getOutbound().getQueuedCount());
+        metrics.gauge("chats_suspended", "Chats skipped after repeated delivery failures", () -> telegramBot.getBroadcaster().getSuspended().size());
+        metrics.gauge("sessions_active", "Admin chats with an open menu", () -> telegramBot.getSessions().size());
+        metrics.gauge("logs_pending", "Log records waiting for the handler thread", () -> logHandler != null ? logHandler.getPendingRecords() : 0);
+        // Process-wide footprint, to compare how many threads and how much heap a change costs.
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        metrics.gauge("jvm_threads", "Live threads in the server process", threads::getThreadCount);
+        metrics.gauge("plugin_threads", "Live threads started by the plugin", () -> countPluginThreads(threads));
+        metrics.gauge("jvm_heap_used_bytes", "Heap in use by the server process", () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+
+    private static long countPluginThreads(ThreadMXBean threads) {
+        long count = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info != null && info.getThreadName().startsWith("TelegramRemote-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
     private void setupLogHandler() {
         try {
             if (logHandler != null) {
@@ -101,6 +224,31 @@ public final class TelegramRemote extends JavaPlugin {
         }
     }
 
+    @Override
+    public void reloadConfig() {
+        // Pending runtime changes go to disk first, otherwise reloading would silently drop them.
+        settings.flush();
+        synchronized (settings) {
+            super.reloadConfig();
+            config = super.getConfig();
+        }
+        admins.reload(config);
+    }
+
+    @Override
+    public FileConfiguration getConfig() {
+        FileConfiguration current = config;
+        return current != null ? current : super.getConfig();
+    }
+
+    void replaceConfig(FileConfiguration updated) {
+        config = updated;
+    }
+
+    InputStream getBundledConfig() {
+        return getResource("config.yml");
+    }
+
     public void loadMessagesConfig() {
         File messagesFile = new File(getDataFolder(), "messages_" + getConfig().getString("language") + ".yml");
 
@@ -110,6 +258,10 @@ public final class TelegramRemote extends JavaPlugin {
         }
 
         messagesConfig = YamlConfiguration.loadConfiguration(messagesFile);
+
+        if (telegramBot != null) {
+            telegramBot.reloadMessages();
+        }
     }
 
     public static String getMessage(String key) {
@@ -124,6 +276,46 @@ public final class TelegramRemote extends JavaPlugin {
         return instance;
     }
     
+    public Main_BOT getTelegramBot() {
+        return telegramBot;
+    }
+
+    public CommandRunner getCommandRunner() {
+        // RCON unless IN_PROCESS is chosen explicitly: only RCON returns the feedback of vanilla commands.
+        if ("IN_PROCESS".equalsIgnoreCase(getConfig().getString("telegram.rcon.execution_mode"))) {
+            return inProcessRunner;
+        }
+        return rconRunner;
+    }
+
+    public SettingsStore getSettings() {
+        return settings;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public AdminRegistry getAdmins() {
+        return admins;
+    }
+
+    public RconSessionPool getRconPool() {
+        return rconPool;
+    }
+
+    public PerfSampler getPerfSampler() {
+        return perfSampler;
+    }
+
+    public TickWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    public SamplingProfiler getProfiler() {
+        return profiler;
+    }
+
     public TelegramLogHandler getLogHandler() {
         return logHandler;
     }
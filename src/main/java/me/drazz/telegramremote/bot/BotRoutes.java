@@ -0,0 +1,114 @@
+package me.drazz.telegramremote.bot;
+
+import me.drazz.telegramremote.TelegramLogHandler;
+
+/**
+ * The bot's route table: which command, menu button, chat state and callback data leads to which
+ * action. Main_BOT supplies the actions; the update dispatch benchmark registers the same table
+ * with no-op actions, so it measures the routes the bot really has.
+ */
+public final class BotRoutes {
+
+    public interface Actions {
+        void start(long chatId);
+
+        void quitConsole(long chatId);
+
+        void logsCommand(long chatId, String text);
+
+        void serverStatus(long chatId);
+
+        void profileCommand(long chatId, String text);
+
+        void stats(long chatId);
+
+        void adminPanel(long chatId);
+
+        void consoleMenu(long chatId);
+
+        void logSettingsMenu(long chatId);
+
+        void consoleInput(long chatId, String text);
+
+        void adminAdd(long chatId, String text);
+
+        void reloadPlugin(long chatId);
+
+        void turnPage(long chatId, int delta);
+
+        void botSettings(long chatId);
+
+        void confirmReload(long chatId);
+
+        void confirmRestart(long chatId);
+
+        void confirmShutdown(long chatId);
+
+        void toggleConsole(long chatId);
+
+        void toggleUpdateCheck(long chatId);
+
+        void toggleLanguage(long chatId);
+
+        void notificationsMenu(long chatId);
+
+        void askAdminId(long chatId);
+
+        void toggleNotification(long chatId, String data);
+
+        void changeLogMode(long chatId, TelegramLogHandler.LogMode mode);
+
+        void reload(long chatId);
+
+        void restart(long chatId);
+
+        void shutdown(long chatId);
+
+        void cancelConfirm(long chatId);
+    }
+
+    private BotRoutes() {
+    }
+
+    // Button labels still have to be resolved with UpdateRouter.compile().
+    public static UpdateRouter create(Actions actions) {
+        return new UpdateRouter()
+                .command("/start", (chatId, text) -> actions.start(chatId))
+                .command("/quit", (chatId, text) -> actions.quitConsole(chatId))
+                .command("/logs", actions::logsCommand)
+                .command("/status", (chatId, text) -> actions.serverStatus(chatId))
+                .command("/profile", actions::profileCommand)
+                .command("/stats", (chatId, text) -> actions.stats(chatId))
+                .button("messages.telegram.admin_menu.menu_admin", (chatId, text) -> actions.adminPanel(chatId))
+                .button("messages.telegram.admin_menu.console_menu", (chatId, text) -> actions.consoleMenu(chatId))
+                .button("messages.telegram.admin_menu.logs_menu", (chatId, text) -> actions.logSettingsMenu(chatId))
+                .text(ChatState.CONSOLE_MODE, actions::consoleInput)
+                .text(ChatState.ADMIN_ADD, actions::adminAdd)
+                .callback("reload_plugin", (chatId, data) -> actions.reloadPlugin(chatId))
+                .callback(ConsoleOutputPager.PREVIOUS_PAGE, (chatId, data) -> actions.turnPage(chatId, -1))
+                .callback(ConsoleOutputPager.NEXT_PAGE, (chatId, data) -> actions.turnPage(chatId, 1))
+                .callback(ChatState.ADMIN_MENU, "bot_settings", (chatId, data) -> actions.botSettings(chatId))
+                .callback(ChatState.ADMIN_MENU, "reload", (chatId, data) -> actions.confirmReload(chatId))
+                .callback(ChatState.ADMIN_MENU, "restart", (chatId, data) -> actions.confirmRestart(chatId))
+                .callback(ChatState.ADMIN_MENU, "shutdown", (chatId, data) -> actions.confirmShutdown(chatId))
+                .callback(ChatState.ADMIN_MENU, "log_settings", (chatId, data) -> actions.logSettingsMenu(chatId))
+                .callback(ChatState.ADMIN_MENU, "server_status", (chatId, data) -> actions.serverStatus(chatId))
+                .callback(ChatState.BOT_SETTINGS, "enable_console_button", (chatId, data) -> actions.toggleConsole(chatId))
+                .callback(ChatState.BOT_SETTINGS, "check_update_button", (chatId, data) -> actions.toggleUpdateCheck(chatId))
+                .callback(ChatState.BOT_SETTINGS, "language_button", (chatId, data) -> actions.toggleLanguage(chatId))
+                .callback(ChatState.BOT_SETTINGS, "notifications_button", (chatId, data) -> actions.notificationsMenu(chatId))
+                .callback(ChatState.BOT_SETTINGS, "admin_add_button", (chatId, data) -> actions.askAdminId(chatId))
+                .callback(ChatState.NOTIFICATIONS_MENU, "notification_op", actions::toggleNotification)
+                .callback(ChatState.NOTIFICATIONS_MENU, "notification_started", actions::toggleNotification)
+                .callback(ChatState.NOTIFICATIONS_MENU, "notification_update", actions::toggleNotification)
+                .callback(ChatState.LOG_SETTINGS, "log_mode_disabled", (chatId, data) -> actions.changeLogMode(chatId, TelegramLogHandler.LogMode.DISABLED))
+                .callback(ChatState.LOG_SETTINGS, "log_mode_important", (chatId, data) -> actions.changeLogMode(chatId, TelegramLogHandler.LogMode.IMPORTANT_ONLY))
+                .callback(ChatState.LOG_SETTINGS, "log_mode_all", (chatId, data) -> actions.changeLogMode(chatId, TelegramLogHandler.LogMode.ALL_LOGS))
+                .callback(ChatState.CONFIRM_RELOAD, "confirm_yes_reload", (chatId, data) -> actions.reload(chatId))
+                .callback(ChatState.CONFIRM_RESTART, "confirm_yes_restart", (chatId, data) -> actions.restart(chatId))
+                .callback(ChatState.CONFIRM_SHUTDOWN, "confirm_yes_shutdown", (chatId, data) -> actions.shutdown(chatId))
+                .callback(ChatState.CONFIRM_RELOAD, "confirm_no_reload", (chatId, data) -> actions.cancelConfirm(chatId))
+                .callback(ChatState.CONFIRM_RESTART, "confirm_no_restart", (chatId, data) -> actions.cancelConfirm(chatId))
+                .callback(ChatState.CONFIRM_SHUTDOWN, "confirm_no_shutdown", (chatId, data) -> actions.cancelConfirm(chatId));
+    }
+}
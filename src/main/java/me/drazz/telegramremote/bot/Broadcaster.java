@@ -0,0 +1,101 @@
+package me.drazz.telegramremote.bot;
+
+import me.drazz.telegramremote.AdminRegistry;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Sends unsolicited messages (notifications, live logs) through the outbound dispatcher.
+ * Every recipient is submitted at once and gets its own lane there, so recipients are served
+ * concurrently and one failing chat never delays or fails the others. Chats that keep rejecting
+ * messages are suspended by a {@link ChatCircuitBreaker} and skipped without a request.
+ */
+public class Broadcaster {
+
+    private final OutboundDispatcher outbound;
+    private final ChatCircuitBreaker breaker = new ChatCircuitBreaker();
+
+    public Broadcaster(OutboundDispatcher outbound) {
+        this.outbound = outbound;
+    }
+
+    // Completes once every recipient was either delivered, failed or skipped; never completes exceptionally.
+    public CompletableFuture<Void> broadcast(AdminRegistry.Snapshot recipients, String text) {
+        List<CompletableFuture<Message>> deliveries = new ArrayList<>(recipients.size());
+        recipients.forEach(chatId -> deliveries.add(send(chatId, text, false)));
+        return settled(deliveries);
+    }
+
+    // Sends the same file to every recipient; completes once all are settled, so the caller can delete the file then.
+    public CompletableFuture<Void> broadcastDocument(AdminRegistry.Snapshot recipients, File file, String fileName, String caption) {
+        List<CompletableFuture<Message>> deliveries = new ArrayList<>(recipients.size());
+        recipients.forEach(chatId -> deliveries.add(sendDocument(chatId, file, fileName, caption, false)));
+        return settled(deliveries);
+    }
+
+    public CompletableFuture<Message> send(long chatId, String text, boolean silent) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId);
+        message.setText(text);
+
+        return guarded(chatId, sender -> sender.execute(message), silent);
+    }
+
+    public CompletableFuture<Message> sendDocument(long chatId, File file, String fileName, String caption, boolean silent) {
+        SendDocument document = new SendDocument();
+        document.setChatId(chatId);
+        document.setDocument(new InputFile(file, fileName));
+        document.setCaption(caption);
+
+        return guarded(chatId, sender -> sender.execute(document), silent);
+    }
+
+    public boolean isSuspended(long chatId) {
+        return !breaker.allowsWithoutProbe(chatId, System.currentTimeMillis());
+    }
+
+    // A chat that writes to the bot can obviously be reached again.
+    public void reset(long chatId) {
+        breaker.reset(chatId);
+    }
+
+    public List<ChatCircuitBreaker.Suspension> getSuspended() {
+        return breaker.suspended(System.currentTimeMillis());
+    }
+
+    private static CompletableFuture<Void> settled(List<CompletableFuture<Message>> deliveries) {
+        CompletableFuture<?>[] settled = new CompletableFuture<?>[deliveries.size()];
+        for (int i = 0; i < settled.length; i++) {
+            settled[i] = deliveries.get(i).handle((message, error) -> null);
+        }
+        return CompletableFuture.allOf(settled);
+    }
+
+    private <T> CompletableFuture<T> guarded(long chatId, OutboundDispatcher.Call<T> call, boolean silent) {
+        if (!breaker.allows(chatId, System.currentTimeMillis())) {
+            CompletableFuture<T> skipped = new CompletableFuture<>();
+            skipped.completeExceptionally(new TelegramApiException("Chat is suspended"));
+            return skipped;
+        }
+
+        CompletableFuture<T> delivery = outbound.submit(chatId, call, silent);
+        delivery.whenComplete((result, error) -> {
+            if (error == null) {
+                breaker.recordSuccess(chatId);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                breaker.recordFailure(chatId, cause, System.currentTimeMillis());
+            }
+        });
+        return delivery;
+    }
+}
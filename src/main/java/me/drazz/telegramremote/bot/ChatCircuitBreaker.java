@@ -0,0 +1,169 @@
+package me.drazz.telegramremote.bot;
+
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.bukkit.Bukkit.getLogger;
+
+/**
+ * Suspends chats that keep rejecting messages (blocked bot, deleted account, wrong ID).
+ * After {@link #FAILURE_THRESHOLD} consecutive rejections a chat is skipped for a backoff that
+ * doubles with every further rejection; once it runs out a single probe is let through, and
+ * one successful delivery closes the circuit again.
+ */
+public class ChatCircuitBreaker {
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long BASE_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.HOURS.toMillis(6);
+    // 400 descriptions that mean the chat itself is unreachable.
+    private static final String[] DEAD_CHAT_MARKERS = {"chat not found", "user not found", "peer_id_invalid"};
+
+    private final Map<Long, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public boolean allows(long chatId, long now) {
+        Circuit circuit = circuits.get(chatId);
+        if (circuit == null) {
+            return true;
+        }
+        synchronized (circuit) {
+            if (circuit.suspendedUntil == 0) {
+                return true;
+            }
+            if (now < circuit.suspendedUntil || circuit.probing) {
+                return false;
+            }
+            circuit.probing = true;
+            return true;
+        }
+    }
+
+    public boolean allowsWithoutProbe(long chatId, long now) {
+        Circuit circuit = circuits.get(chatId);
+        if (circuit == null) {
+            return true;
+        }
+        synchronized (circuit) {
+            return circuit.suspendedUntil == 0 || (now >= circuit.suspendedUntil && !circuit.probing);
+        }
+    }
+
+    public void recordSuccess(long chatId) {
+        circuits.remove(chatId);
+    }
+
+    public void recordFailure(long chatId, Throwable error, long now) {
+        if (!isChatRejection(error)) {
+            Circuit circuit = circuits.get(chatId);
+            if (circuit != null) {
+                synchronized (circuit) {
+                    circuit.probing = false;
+                }
+            }
+            return;
+        }
+
+        Circuit circuit = circuits.computeIfAbsent(chatId, id -> new Circuit());
+        long backoff;
+        synchronized (circuit) {
+            circuit.failures++;
+            circuit.probing = false;
+            circuit.lastError = error.getMessage();
+            if (circuit.failures < FAILURE_THRESHOLD) {
+                return;
+            }
+            int doublings = Math.min(circuit.failures - FAILURE_THRESHOLD, 20);
+            backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << doublings);
+            circuit.suspendedUntil = now + backoff;
+        }
+        getLogger().info("Chat suspended! ChatID: " + chatId + " for " + TimeUnit.MILLISECONDS.toMinutes(backoff) + " min after "
+                + circuit.failures + " failed deliveries: " + circuit.lastError);
+    }
+
+    public void reset(long chatId) {
+        circuits.remove(chatId);
+    }
+
+    public List<Suspension> suspended(long now) {
+        List<Suspension> result = new ArrayList<>();
+        for (Map.Entry<Long, Circuit> entry : circuits.entrySet()) {
+            Circuit circuit = entry.getValue();
+            synchronized (circuit) {
+                if (circuit.suspendedUntil != 0) {
+                    result.add(new Suspension(entry.getKey(), circuit.failures,
+                            Math.max(0, circuit.suspendedUntil - now), circuit.lastError));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Only errors that are about the chat itself count; network trouble and rate limits affect every chat alike,
+    // and most 400s are about the content of one message ("message is too long", "can't parse entities", ...).
+    private static boolean isChatRejection(Throwable error) {
+        if (!(error instanceof TelegramApiRequestException)) {
+            return false;
+        }
+        TelegramApiRequestException request = (TelegramApiRequestException) error;
+        Integer code = request.getErrorCode();
+        if (code == null) {
+            return false;
+        }
+        if (code == 403) {
+            return true;
+        }
+        if (code != 400 || request.getApiResponse() == null) {
+            return false;
+        }
+        String description = request.getApiResponse().toLowerCase(Locale.ROOT);
+        for (String marker : DEAD_CHAT_MARKERS) {
+            if (description.contains(marker)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static final class Suspension {
+        private final long chatId;
+        private final int failures;
+        private final long remainingMillis;
+        private final String lastError;
+
+        private Suspension(long chatId, int failures, long remainingMillis, String lastError) {
+            this.chatId = chatId;
+            this.failures = failures;
+            this.remainingMillis = remainingMillis;
+            this.lastError = lastError;
+        }
+
+        public long getChatId() {
+            return chatId;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public long getRemainingMillis() {
+            return remainingMillis;
+        }
+
+        public String getLastError() {
+            return lastError;
+        }
+    }
+
+    private static final class Circuit {
+        private int failures;
+        private long suspendedUntil;
+        private boolean probing;
+        private String lastError;
+    }
+}
@@ -0,0 +1,121 @@
+package me.drazz.telegramremote.bot;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.bukkit.Bukkit.getLogger;
+
+/**
+ * Runs tasks of different chats in parallel on a shared pool while keeping the tasks
+ * of one chat strictly in order. Each chat has a lane that is drained by at most one
+ * worker at a time; a busy lane gives its worker back after a few tasks so one chat
+ * cannot hold a thread forever.
+ */
+public class ChatSerialExecutor {
+
+    private static final int MAX_PENDING_PER_CHAT = 100;
+    private static final int TASKS_PER_TURN = 16;
+
+    private final ConcurrentHashMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService pool;
+
+    public ChatSerialExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread thread = new Thread(r, "TelegramRemote-Updates-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Returns false if the chat already has too many pending tasks and this one was dropped.
+    public boolean execute(long chatId, Runnable task) {
+        // 0 - queued behind a running task, 1 - lane has to be scheduled, 2 - dropped
+        int[] outcome = new int[1];
+        Lane lane = lanes.compute(chatId, (key, existing) -> {
+            Lane current = existing != null ? existing : new Lane(key);
+            if (current.tasks.size() >= MAX_PENDING_PER_CHAT) {
+                outcome[0] = 2;
+                return current;
+            }
+            current.tasks.add(task);
+            if (!current.scheduled) {
+                current.scheduled = true;
+                outcome[0] = 1;
+            }
+            return current;
+        });
+
+        if (outcome[0] == 1) {
+            schedule(lane);
+        } else if (outcome[0] == 2) {
+            getLogger().warning("[TG REMOTE] Too many pending updates, update dropped. ChatID: " + chatId);
+            return false;
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+        lanes.clear();
+    }
+
+    private void schedule(Lane lane) {
+        try {
+            pool.execute(() -> drain(lane));
+        } catch (RejectedExecutionException e) {
+            lanes.remove(lane.key, lane);
+        }
+    }
+
+    private void drain(Lane lane) {
+        for (int i = 0; i < TASKS_PER_TURN; i++) {
+            Runnable task = next(lane);
+            if (task == null) {
+                return;
+            }
+            boolean handled = false;
+            try {
+                task.run();
+                handled = true;
+            } catch (RuntimeException e) {
+                handled = true;
+                getLogger().warning("[TG REMOTE] Unable to handle update: " + e.getMessage());
+            } finally {
+                if (!handled) {
+                    // An Error ends this worker; the lane is still scheduled, so hand it to another one.
+                    schedule(lane);
+                }
+            }
+        }
+        // Still scheduled: requeue behind the other chats instead of looping here.
+        schedule(lane);
+    }
+
+    private Runnable next(Lane lane) {
+        Runnable[] next = new Runnable[1];
+        lanes.computeIfPresent(lane.key, (key, current) -> {
+            next[0] = current.tasks.poll();
+            if (next[0] == null) {
+                current.scheduled = false;
+                return null;
+            }
+            return current;
+        });
+        return next[0];
+    }
+
+    private static final class Lane {
+        private final long key;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean scheduled;
+
+        private Lane(long key) {
+            this.key = key;
+        }
+    }
+}
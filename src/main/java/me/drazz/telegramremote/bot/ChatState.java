@@ -0,0 +1,14 @@
+package me.drazz.telegramremote.bot;
+
+public enum ChatState {
+    DEFAULT,
+    CONSOLE_MODE,
+    ADMIN_ADD,
+    ADMIN_MENU,
+    BOT_SETTINGS,
+    NOTIFICATIONS_MENU,
+    LOG_SETTINGS,
+    CONFIRM_RELOAD,
+    CONFIRM_RESTART,
+    CONFIRM_SHUTDOWN
+}
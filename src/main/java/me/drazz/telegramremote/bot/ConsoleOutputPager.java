@@ -0,0 +1,172 @@
+package me.drazz.telegramremote.bot;
+
+import me.drazz.telegramremote.TelegramRemote;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Delivers console output of any length. Output that fits one message is sent as is, longer output
+ * is split on line boundaries into pages shown in a single message that is edited when paging, and
+ * output above the document threshold is sent as a text file. Only the last paged output of each
+ * chat is kept.
+ */
+public class ConsoleOutputPager {
+
+    public static final String PREVIOUS_PAGE = "console_page_prev";
+    public static final String NEXT_PAGE = "console_page_next";
+    private static final String PAGE_NUMBER = "console_page";
+    private static final int PAGE_LIMIT = 4096;
+
+    private final Main_BOT bot;
+    private final OutboundDispatcher outbound;
+    private final Map<Long, PagedOutput> outputs = new ConcurrentHashMap<>();
+
+    public ConsoleOutputPager(Main_BOT bot, OutboundDispatcher outbound) {
+        this.bot = bot;
+        this.outbound = outbound;
+    }
+
+    public void send(long chatId, String output) {
+        if (output.length() <= PAGE_LIMIT) {
+            outputs.remove(chatId);
+            bot.sendMsg(chatId, output);
+            return;
+        }
+
+        int documentThreshold = TelegramRemote.getInstance().getConfig().getInt("telegram.rcon.output_document_threshold", 16000);
+        if (documentThreshold > 0 && output.length() > documentThreshold) {
+            outputs.remove(chatId);
+            sendDocument(chatId, output);
+            return;
+        }
+
+        PagedOutput paged = new PagedOutput(paginate(output, PAGE_LIMIT));
+        outputs.put(chatId, paged);
+
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId);
+        message.setText(paged.pages.get(0));
+        message.setReplyMarkup(pageKeyboard(0, paged.pages.size()));
+        outbound.submit(chatId, message, false).thenAccept(sent -> paged.messageId = sent.getMessageId());
+    }
+
+    // messageId is the message whose button was pressed; buttons under an older output are ignored.
+    public void turnPage(long chatId, Integer messageId, int delta) {
+        PagedOutput paged = outputs.get(chatId);
+        if (paged == null || paged.messageId == null || !paged.messageId.equals(messageId)) {
+            return;
+        }
+
+        int page;
+        synchronized (paged) {
+            page = Math.max(0, Math.min(paged.pages.size() - 1, paged.page + delta));
+            if (page == paged.page) {
+                return;
+            }
+            paged.page = page;
+        }
+
+        EditMessageText edit = new EditMessageText();
+        edit.setChatId(chatId);
+        edit.setMessageId(paged.messageId);
+        edit.setText(paged.pages.get(page));
+        edit.setReplyMarkup(pageKeyboard(page, paged.pages.size()));
+        outbound.submit(chatId, edit, false);
+    }
+
+    static List<String> paginate(String output, int limit) {
+        List<String> pages = new ArrayList<>();
+        StringBuilder page = new StringBuilder(limit);
+        boolean pageStarted = false;
+        for (String line : output.split("\n", -1)) {
+            // Lines longer than a page are cut into page-sized pieces.
+            int from = 0;
+            do {
+                int to = Math.min(line.length(), from + limit);
+                if (to < line.length() && to - from > 1
+                        && Character.isHighSurrogate(line.charAt(to - 1)) && Character.isLowSurrogate(line.charAt(to))) {
+                    to--;
+                }
+                if (pageStarted && page.length() + 1 + (to - from) > limit) {
+                    pages.add(page.toString());
+                    page.setLength(0);
+                    pageStarted = false;
+                }
+                if (pageStarted) {
+                    page.append('\n');
+                }
+                page.append(line, from, to);
+                pageStarted = true;
+                from = to;
+            } while (from < line.length());
+        }
+        pages.add(page.toString());
+        return pages;
+    }
+
+    private void sendDocument(long chatId, String output) {
+        File file;
+        try {
+            file = File.createTempFile("telegramremote-output", ".txt");
+        } catch (IOException e) {
+            bot.sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.command_error") + e.getMessage());
+            return;
+        }
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write(output);
+        } catch (IOException e) {
+            file.delete();
+            bot.sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.command_error") + e.getMessage());
+            return;
+        }
+
+        String fileName = "console-output-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".txt";
+        bot.sendDocument(chatId, file, fileName, TelegramRemote.getMessage("messages.telegram.console_output_document"))
+                .whenComplete((message, error) -> file.delete());
+    }
+
+    private static InlineKeyboardMarkup pageKeyboard(int page, int pages) {
+        InlineKeyboardMarkup markup = new InlineKeyboardMarkup();
+        markup.setKeyboard(Collections.singletonList(Arrays.asList(
+                button("◀", PREVIOUS_PAGE),
+                button((page + 1) + "/" + pages, PAGE_NUMBER),
+                button("▶", NEXT_PAGE))));
+        return markup;
+    }
+
+    private static InlineKeyboardButton button(String text, String callbackData) {
+        InlineKeyboardButton button = new InlineKeyboardButton();
+        button.setText(text);
+        button.setCallbackData(callbackData);
+        return button;
+    }
+
+    private static final class PagedOutput {
+        private final List<String> pages;
+        private volatile Integer messageId;
+        private int page;
+
+        private PagedOutput(List<String> pages) {
+            this.pages = pages;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package me.drazz.telegramremote.bot;
+
+import me.drazz.telegramremote.TelegramRemote;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardButton;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Prebuilt keyboard markups keyed by menu and the on/off state of the settings shown
+ * in the menu. Markups are shared between messages and must not be modified after they are built.
+ */
+public class KeyboardCache {
+
+    public enum Menu {
+        MAIN,
+        CONSOLE,
+        ADMIN_PANEL,
+        BOT_SETTINGS,
+        NOTIFICATIONS,
+        LOG_SETTINGS,
+        CONFIRM_RELOAD,
+        CONFIRM_RESTART,
+        CONFIRM_SHUTDOWN
+    }
+
+    public static final int CONSOLE_ENABLED = 1;
+    public static final int UPDATE_CHECK_ENABLED = 1 << 1;
+    public static final int NOTIFY_OP = 1;
+    public static final int NOTIFY_BOT_STARTED = 1 << 1;
+    public static final int NOTIFY_UPDATE = 1 << 2;
+
+    private volatile Map<Long, ReplyKeyboard> markups = new ConcurrentHashMap<>();
+
+    public ReplyKeyboard get(Menu menu, int flags) {
+        long key = ((long) menu.ordinal() << 32) | (flags & 0xFFFFFFFFL);
+        return markups.computeIfAbsent(key, k -> build(menu, flags));
+    }
+
+    // Drops every markup built for the previous messages file.
+    public void reload() {
+        markups = new ConcurrentHashMap<>();
+    }
+
+    private static ReplyKeyboard build(Menu menu, int flags) {
+        switch (menu) {
+            case MAIN:
+                return replyKeyboard(
+                        TelegramRemote.getMessage("messages.telegram.admin_menu.menu_admin"),
+                        TelegramRemote.getMessage("messages.telegram.admin_menu.console_menu"),
+                        TelegramRemote.getMessage("messages.telegram.admin_menu.logs_menu"));
+            case CONSOLE:
+                return replyKeyboard("/quit");
+            case ADMIN_PANEL:
+                return inlineKeyboard(Arrays.asList(
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.settings"), "bot_settings")),
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.status_button"), "server_status")),
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.log_settings_button"), "log_settings")),
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.reload_plugin"), "reload_plugin")),
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.reload"), "reload")),
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.restart"), "restart")),
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.shutdown"), "shutdown"))));
+            case BOT_SETTINGS:
+                return inlineKeyboard(Arrays.asList(
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.language_button") + TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.lang"), "language_button")),
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.notifications_button"), "notifications_button")),
+                        row(toggle("messages.telegram.admin_menu.settings_bot.enable_console_button", flags, CONSOLE_ENABLED, "enable_console_button")),
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.admin_add_button"), "admin_add_button")),
+                        row(toggle("messages.telegram.admin_menu.settings_bot.check_update_button", flags, UPDATE_CHECK_ENABLED, "check_update_button"))));
+            case NOTIFICATIONS:
+                return inlineKeyboard(Arrays.asList(
+                        row(toggle("messages.telegram.admin_menu.settings_bot.notification_op", flags, NOTIFY_OP, "notification_op")),
+                        row(toggle("messages.telegram.admin_menu.settings_bot.notification_bot_started", flags, NOTIFY_BOT_STARTED, "notification_started")),
+                        row(toggle("messages.telegram.admin_menu.settings_bot.notification_update", flags, NOTIFY_UPDATE, "notification_update"))));
+            case LOG_SETTINGS:
+                return inlineKeyboard(Arrays.asList(
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.log_settings.mode_disabled"), "log_mode_disabled")),
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.log_settings.mode_important"), "log_mode_important")),
+                        row(button(TelegramRemote.getMessage("messages.telegram.admin_menu.log_settings.mode_all"), "log_mode_all"))));
+            case CONFIRM_RELOAD:
+                return confirmKeyboard("reload");
+            case CONFIRM_RESTART:
+                return confirmKeyboard("restart");
+            case CONFIRM_SHUTDOWN:
+                return confirmKeyboard("shutdown");
+            default:
+                throw new IllegalArgumentException("Unknown menu " + menu);
+        }
+    }
+
+    private static ReplyKeyboard confirmKeyboard(String action) {
+        return inlineKeyboard(Collections.singletonList(row(
+                button(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.yes_text"), "confirm_yes_" + action),
+                button(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.no_text"), "confirm_no_" + action))));
+    }
+
+    private static ReplyKeyboard replyKeyboard(String... labels) {
+        ReplyKeyboardMarkup replyMarkup = new ReplyKeyboardMarkup();
+        replyMarkup.setSelective(true);
+        replyMarkup.setResizeKeyboard(true);
+        replyMarkup.setOneTimeKeyboard(false);
+
+        List<KeyboardRow> keyboard = new ArrayList<>(labels.length);
+        for (String label : labels) {
+            KeyboardRow row = new KeyboardRow();
+            row.add(new KeyboardButton(label));
+            keyboard.add(row);
+        }
+        replyMarkup.setKeyboard(keyboard);
+        return replyMarkup;
+    }
+
+    private static ReplyKeyboard inlineKeyboard(List<List<InlineKeyboardButton>> rows) {
+        InlineKeyboardMarkup inlineKeyboardMarkup = new InlineKeyboardMarkup();
+        inlineKeyboardMarkup.setKeyboard(Collections.unmodifiableList(rows));
+        return inlineKeyboardMarkup;
+    }
+
+    private static List<InlineKeyboardButton> row(InlineKeyboardButton... buttons) {
+        return Collections.unmodifiableList(Arrays.asList(buttons));
+    }
+
+    private static InlineKeyboardButton toggle(String labelKey, int flags, int flag, String callbackData) {
+        return button(TelegramRemote.getMessage(labelKey) + ((flags & flag) != 0 ? "✅" : "❌"), callbackData);
+    }
+
+    private static InlineKeyboardButton button(String text, String callbackData) {
+        InlineKeyboardButton button = new InlineKeyboardButton();
+        button.setText(text);
+        button.setCallbackData(callbackData);
+        return button;
+    }
+}
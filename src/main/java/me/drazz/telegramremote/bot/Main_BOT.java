@@ -1,314 +1,489 @@
 package me.drazz.telegramremote.bot;
 
-import com.github.t9t.minecraftrconclient.RconClient;
 import me.drazz.telegramremote.TelegramLogHandler;
 import me.drazz.telegramremote.TelegramRemote;
 import me.drazz.telegramremote.events.Notifications_Event;
+import me.drazz.telegramremote.logs.LogSubscription;
+import me.drazz.telegramremote.metrics.Metrics;
+import me.drazz.telegramremote.perf.PerfSampler;
+import me.drazz.telegramremote.perf.SamplingProfiler;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageReplyMarkup;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.InputFile;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.User;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboardMarkup;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardButton;
-import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.KeyboardRow;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.ReplyKeyboard;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 import static org.bukkit.Bukkit.getLogger;
 
 public class Main_BOT extends TelegramLongPollingBot {
 
-    private static final Map<Long, String> fsmContext = new HashMap<>();
+    private final Metrics metrics = TelegramRemote.getInstance().getMetrics();
+    private final OutboundDispatcher outbound = new OutboundDispatcher(this, metrics);
+    private final Broadcaster broadcaster = new Broadcaster(outbound);
+    private final ConsoleOutputPager consoleOutput = new ConsoleOutputPager(this, outbound);
+    private final SessionStore sessions = new SessionStore(
+            chatId -> TelegramRemote.getInstance().getAdmins().contains(chatId),
+            TimeUnit.MINUTES.toMillis(TelegramRemote.getInstance().getConfig().getLong("telegram.session.ttl_minutes", 30)),
+            TelegramRemote.getInstance().getConfig().getInt("telegram.session.max_entries", 256));
+    private final KeyboardCache keyboards = new KeyboardCache();
+    private final ThreadLocal<Message> editTarget = new ThreadLocal<>();
+    private final UpdateRouter router = createRouter();
+    // Last console command of each chat; the next one starts only after it was answered.
+    private final ConcurrentHashMap<Long, CompletableFuture<Void>> consoleCommands = new ConcurrentHashMap<>();
+    private final ChatSerialExecutor updates = new ChatSerialExecutor(TelegramRemote.getInstance().getConfig().getInt("telegram.update_threads", 4));
 
     @Override
     public void onUpdateReceived(Update update) {
+        long chatId;
+        if (update.hasMessage()) {
+            chatId = update.getMessage().getChatId();
+        }
+        else if (update.hasCallbackQuery()) {
+            chatId = update.getCallbackQuery().getFrom().getId();
+        }
+        else {
+            return;
+        }
+        broadcaster.reset(chatId);
+        metrics.updatesReceived.increment();
+        if (!updates.execute(chatId, () -> handleUpdate(update))) {
+            metrics.updatesDropped.increment();
+        }
+    }
+
+    private void handleUpdate(Update update) {
+        long start = System.nanoTime();
+        try {
+            routeUpdate(update);
+        } finally {
+            metrics.updateHandling.recordSince(start);
+        }
+    }
+
+    private void routeUpdate(Update update) {
         if (update.hasMessage() && update.getMessage().hasText()) {
             long chatId = update.getMessage().getChatId();
-            String messageText = update.getMessage().getText();
-            String currentState = fsmContext.getOrDefault(chatId, "DEFAULT");
+            router.routeText(chatId, sessions.get(chatId), update.getMessage().getText());
+        }
+        else if (update.hasCallbackQuery()) {
+            CallbackQuery callbackQuery = update.getCallbackQuery();
+            User user = callbackQuery.getFrom();
+            long chatId = user.getId();
+            answerCallback(callbackQuery.getId());
 
-            if (messageText.equalsIgnoreCase("/start")){
-                handleStartCommand(chatId);
-            }
-            else if (messageText.equals(TelegramRemote.getMessage("messages.telegram.admin_menu.menu_admin"))) {
-                sendAdminPanel(chatId);
-            }
-            else if (messageText.equals(TelegramRemote.getMessage("messages.telegram.admin_menu.console_menu"))) {
-                handleConsoleCommand(chatId);
-            }
-            else if (messageText.equals(TelegramRemote.getMessage("messages.telegram.admin_menu.logs_menu"))) {
-                sendLogSettingsMenu(chatId);
-            }
-            else if (messageText.equals("/quit")) {
-                if (currentState.equals("CONSOLE_MODE")) {
-                    sendMenu(chatId);
-                    fsmContext.put(chatId, "DEFAULT");
-                }
-            }
-            else if (currentState.equals("CONSOLE_MODE")) {
-                if (!isAdmin(chatId)) {
-                    getLogger().info("[TG-Console] Received from Telegram: " + messageText + ", " + "AdminID: " + chatId);
-                    rcon(messageText, chatId);
-                }
+            // Menus opened by this button replace the message the button belongs to.
+            editTarget.set(callbackQuery.getMessage());
+            try {
+                router.routeCallback(chatId, sessions.get(chatId), callbackQuery.getData());
+            } finally {
+                editTarget.remove();
             }
-            else if (currentState.equals("ADMIN_ADD")) {
-                if (isAdmin(chatId)) {
-                    return;
-                }
+        }
+    }
 
-                try {
-                    Long adminId = Long.parseLong(messageText);
-                    fsmContext.put(chatId, "DEFAULT");
-                    getLogger().info("[TG REMOTE] Added admin from telegram. " + "Added admin: " + adminId + " " + "AdminID: " + chatId);
-                    FileConfiguration config = TelegramRemote.getInstance().getConfig();
+    private UpdateRouter createRouter() {
+        UpdateRouter router = BotRoutes.create(new Routes());
+        router.compile();
+        return router;
+    }
 
-                    List<Long> adminIds = config.getLongList("telegram.admin_ids");
-                    adminIds.add(adminId);
+    private final class Routes implements BotRoutes.Actions {
+        @Override
+        public void start(long chatId) {
+            handleStartCommand(chatId);
+        }
 
-                    config.set("telegram.admin_ids", adminIds);
-                    TelegramRemote.getInstance().saveConfig();
+        @Override
+        public void quitConsole(long chatId) {
+            Main_BOT.this.quitConsole(chatId);
+        }
 
-                    TelegramRemote.getInstance().reloadConfig();
-                    TelegramRemote.getInstance().loadMessagesConfig();
-                    Notifications_Event.getInstance().loadConfig();
+        @Override
+        public void logsCommand(long chatId, String text) {
+            handleLogsCommand(chatId, text);
+        }
 
-                    sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.admin_added_text"));
-                } catch (NumberFormatException e) {
-                    sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.incorrect_id"));
-                }
-            }
+        @Override
+        public void serverStatus(long chatId) {
+            sendServerStatus(chatId);
         }
-        else if (update.hasCallbackQuery()) {
-            CallbackQuery callbackQuery = update.getCallbackQuery();
-            String data = update.getCallbackQuery().getData();
-            User user = callbackQuery.getFrom();
-            long chatId = user.getId();
-            String currentState = fsmContext.getOrDefault(chatId, "DEFAULT");
 
-            if ("bot_settings".equals(data) && currentState.equals("ADMIN_MENU")) {
-                sendBotSettings(chatId);
-            }
-            else if ("enable_console_button".equals(data) && currentState.equals("BOT_SETTINGS")) {
-                changeConsoleEnable(chatId);
-            }
-            else if ("check_update_button".equals(data) && currentState.equals("BOT_SETTINGS")) {
-                changeCheckUpdate(chatId);
-            }
-            else if ("language_button".equals(data) && currentState.equals("BOT_SETTINGS")) {
-                changeLanguage(chatId);
-            }
-            else if ("notifications_button".equals(data) && currentState.equals("BOT_SETTINGS")) {
-                sendNotifMenu(chatId);
-            }
-            else if ("notification_op".equals(data) || "notification_started".equals(data) || "notification_update".equals(data) && currentState.equals("NOTIFICATIONS_MENU")) {
-                changeNotif(chatId, data);
-            }
-            else if ("admin_add_button".equals(data) && currentState.equals("BOT_SETTINGS")) {
-                fsmContext.put(chatId, "ADMIN_ADD");
-                sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.chat_id_text"));
-            }
-            else if ("reload_plugin".equals(data)) {
-                sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.reloading_plugin"));
-                getLogger().info("Reload plugin from Telegram. By " + chatId);
-                rcon("telegramremote reload", chatId);
-                sendMenu(chatId);
-            }
-            else if ("reload".equals(data) && currentState.equals("ADMIN_MENU")) {
-                sendConfirmReload(chatId);
-            }
-            else if ("restart".equals(data) && currentState.equals("ADMIN_MENU")) {
-                sendConfirmRestart(chatId);
-            }
-            else if ("shutdown".equals(data) && currentState.equals("ADMIN_MENU")) {
-                sendConfirmShutdown(chatId);
-            }
-            else if ("log_settings".equals(data) && currentState.equals("ADMIN_MENU")) {
-                sendLogSettingsMenu(chatId);
-            }
-            else if ("log_mode_disabled".equals(data) && currentState.equals("LOG_SETTINGS")) {
-                changeLogMode(chatId, TelegramLogHandler.LogMode.DISABLED);
-            }
-            else if ("log_mode_important".equals(data) && currentState.equals("LOG_SETTINGS")) {
-                changeLogMode(chatId, TelegramLogHandler.LogMode.IMPORTANT_ONLY);
-            }
-            else if ("log_mode_all".equals(data) && currentState.equals("LOG_SETTINGS")) {
-                changeLogMode(chatId, TelegramLogHandler.LogMode.ALL_LOGS);
-            }
-            else if ("confirm_yes_reload".equals(data) && currentState.equals("CONFIRM_RELOAD")) {
-                sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.reload"));
-                getLogger().info("Reload from Telegram. By " + chatId);
-                rcon("reload", chatId);
-            }
-            else if ("confirm_yes_restart".equals(data) && currentState.equals("CONFIRM_RESTART")) {
-                sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.restart"));
-                getLogger().info("Restart from Telegram. By " + chatId);
-                rcon("restart", chatId);
-            }
-            else if ("confirm_yes_shutdown".equals(data) && currentState.equals("CONFIRM_SHUTDOWN")) {
-                getLogger().info("Shutdown from Telegram. By " + chatId);
-                sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.shutdown"));
-                rcon("stop", chatId);
-            }
-            else if ("confirm_no_reload".equals(data) || "confirm_no_restart".equals(data) || "confirm_no_shutdown".equals(data) && currentState.equals("CONFIRM_RELOAD") || currentState.equals("CONFIRM_RESTART") || currentState.equals("CONFIRM_SHUTDOWN")) {
-                sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.normal_mode"));
-                sendAdminPanel(chatId);
+        @Override
+        public void profileCommand(long chatId, String text) {
+            handleProfileCommand(chatId, text);
+        }
+
+        @Override
+        public void stats(long chatId) {
+            if (!isAdmin(chatId)) {
+                sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.stats_header") + "\n" + metrics.renderText());
             }
         }
+
+        @Override
+        public void adminPanel(long chatId) {
+            sendAdminPanel(chatId);
+        }
+
+        @Override
+        public void consoleMenu(long chatId) {
+            handleConsoleCommand(chatId);
+        }
+
+        @Override
+        public void logSettingsMenu(long chatId) {
+            sendLogSettingsMenu(chatId);
+        }
+
+        @Override
+        public void consoleInput(long chatId, String text) {
+            handleConsoleInput(chatId, text);
+        }
+
+        @Override
+        public void adminAdd(long chatId, String text) {
+            handleAdminAdd(chatId, text);
+        }
+
+        @Override
+        public void reloadPlugin(long chatId) {
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.reloading_plugin"));
+            getLogger().info("Reload plugin from Telegram. By " + chatId);
+            executeCommand("telegramremote reload", chatId);
+            sendMenu(chatId);
+        }
+
+        @Override
+        public void turnPage(long chatId, int delta) {
+            consoleOutput.turnPage(chatId, callbackMessageId(), delta);
+        }
+
+        @Override
+        public void botSettings(long chatId) {
+            sendBotSettings(chatId);
+        }
+
+        @Override
+        public void confirmReload(long chatId) {
+            sendConfirmReload(chatId);
+        }
+
+        @Override
+        public void confirmRestart(long chatId) {
+            sendConfirmRestart(chatId);
+        }
+
+        @Override
+        public void confirmShutdown(long chatId) {
+            sendConfirmShutdown(chatId);
+        }
+
+        @Override
+        public void toggleConsole(long chatId) {
+            changeConsoleEnable(chatId);
+        }
+
+        @Override
+        public void toggleUpdateCheck(long chatId) {
+            changeCheckUpdate(chatId);
+        }
+
+        @Override
+        public void toggleLanguage(long chatId) {
+            changeLanguage(chatId);
+        }
+
+        @Override
+        public void notificationsMenu(long chatId) {
+            sendNotifMenu(chatId);
+        }
+
+        @Override
+        public void askAdminId(long chatId) {
+            sessions.set(chatId, ChatState.ADMIN_ADD);
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.chat_id_text"));
+        }
+
+        @Override
+        public void toggleNotification(long chatId, String data) {
+            changeNotif(chatId, data);
+        }
+
+        @Override
+        public void changeLogMode(long chatId, TelegramLogHandler.LogMode mode) {
+            Main_BOT.this.changeLogMode(chatId, mode);
+        }
+
+        @Override
+        public void reload(long chatId) {
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.reload"));
+            getLogger().info("Reload from Telegram. By " + chatId);
+            executeCommand("reload", chatId);
+        }
+
+        @Override
+        public void restart(long chatId) {
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.restart"));
+            getLogger().info("Restart from Telegram. By " + chatId);
+            executeCommand("restart", chatId);
+        }
+
+        @Override
+        public void shutdown(long chatId) {
+            getLogger().info("Shutdown from Telegram. By " + chatId);
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.shutdown"));
+            executeCommand("stop", chatId);
+        }
+
+        @Override
+        public void cancelConfirm(long chatId) {
+            Main_BOT.this.cancelConfirm(chatId);
+        }
     }
 
-    @Override
-    public String getBotUsername() {
-        return "@" + TelegramRemote.getInstance().getConfig().getString("telegram.bot_username");
+    public void reloadMessages() {
+        router.compile();
+        keyboards.reload();
     }
 
-    @Override
-    public String getBotToken() {
-        return TelegramRemote.getInstance().getConfig().getString("telegram.token");
+    private void quitConsole(long chatId) {
+        if (sessions.get(chatId) == ChatState.CONSOLE_MODE) {
+            sendMenu(chatId);
+            sessions.set(chatId, ChatState.DEFAULT);
+        }
     }
 
-    private void handleStartCommand(long chatId) {
+    private void handleConsoleInput(long chatId, String messageText) {
+        if (!isAdmin(chatId)) {
+            getLogger().info("[TG-Console] Received from Telegram: " + messageText + ", " + "AdminID: " + chatId);
+            executeCommand(messageText, chatId);
+        }
+    }
+
+    private void handleAdminAdd(long chatId, String messageText) {
         if (isAdmin(chatId)) {
             return;
         }
-        fsmContext.put(chatId, "DEFAULT");
 
-        ReplyKeyboardMarkup replyMarkup = new ReplyKeyboardMarkup();
-        replyMarkup.setSelective(true);
-        replyMarkup.setResizeKeyboard(true);
-        replyMarkup.setOneTimeKeyboard(false);
+        try {
+            Long adminId = Long.parseLong(messageText);
+            sessions.set(chatId, ChatState.DEFAULT);
+            getLogger().info("[TG REMOTE] Added admin from telegram. " + "Added admin: " + adminId + " " + "AdminID: " + chatId);
 
-        List<KeyboardRow> keyboard = new ArrayList<>();
+            TelegramRemote.getInstance().getAdmins().add(adminId, TelegramRemote.getInstance().getSettings());
 
-        KeyboardRow row = new KeyboardRow();
-        row.add(new KeyboardButton(TelegramRemote.getMessage("messages.telegram.admin_menu.menu_admin")));
-        keyboard.add(row);
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.admin_added_text"));
+        } catch (NumberFormatException e) {
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.incorrect_id"));
+        }
+    }
 
-        row = new KeyboardRow();
-        row.add(new KeyboardButton(TelegramRemote.getMessage("messages.telegram.admin_menu.console_menu")));
-        keyboard.add(row);
-        
-        row = new KeyboardRow();
-        row.add(new KeyboardButton(TelegramRemote.getMessage("messages.telegram.admin_menu.logs_menu")));
-        keyboard.add(row);
+    // /logs [on|off|pause|resume|important|reset|level <LEVEL>|logger <prefix>|filter <word, word>]
+    private void handleLogsCommand(long chatId, String text) {
+        if (isAdmin(chatId)) {
+            return;
+        }
+        TelegramLogHandler logHandler = TelegramRemote.getInstance().getLogHandler();
+        if (logHandler == null) {
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.log_subscription.unavailable"));
+            return;
+        }
 
-        replyMarkup.setKeyboard(keyboard);
+        String[] parts = text.trim().split("\\s+", 3);
+        String action = parts.length > 1 ? parts[1].toLowerCase(Locale.ROOT) : "";
+        String argument = parts.length > 2 ? parts[2].trim() : "";
+        switch (action) {
+            case "on":
+                logHandler.updateSubscription(chatId, s -> s.withLevel(Level.ALL).withImportantOnly(false).withPaused(false));
+                break;
+            case "off":
+                logHandler.updateSubscription(chatId, s -> s.withLevel(Level.OFF));
+                break;
+            case "pause":
+                logHandler.updateSubscription(chatId, s -> s.withPaused(true));
+                break;
+            case "resume":
+                logHandler.updateSubscription(chatId, s -> s.withPaused(false));
+                break;
+            case "important":
+                logHandler.updateSubscription(chatId, s -> s.withImportantOnly(!s.isImportantOnly()));
+                break;
+            case "reset":
+                logHandler.resetSubscription(chatId);
+                break;
+            case "level":
+                Level level;
+                try {
+                    level = Level.parse(argument.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.log_subscription.invalid_level"));
+                    return;
+                }
+                logHandler.updateSubscription(chatId, s -> s.withLevel(level));
+                break;
+            case "logger":
+                logHandler.updateSubscription(chatId, s -> s.withLoggerPrefix(argument));
+                break;
+            case "filter":
+                List<String> keywords = new ArrayList<>();
+                for (String keyword : argument.split(",")) {
+                    if (!keyword.trim().isEmpty()) {
+                        keywords.add(keyword.trim());
+                    }
+                }
+                logHandler.updateSubscription(chatId, s -> s.withKeywords(keywords));
+                break;
+            case "":
+                break;
+            default:
+                sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.log_subscription.help"));
+                return;
+        }
 
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(TelegramRemote.getMessage("messages.telegram.start"));
-        message.setReplyMarkup(replyMarkup);
+        LogSubscription subscription = logHandler.getSubscription(chatId);
+        sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.log_subscription.status")
+                + "\nlevel: " + subscription.getMinLevel().getName()
+                + "\nlogger: " + (subscription.getLoggerPrefix().isEmpty() ? "*" : subscription.getLoggerPrefix())
+                + "\nfilter: " + (subscription.getKeywords().isEmpty() ? "*" : String.join(", ", subscription.getKeywords()))
+                + "\nimportant: " + subscription.isImportantOnly()
+                + "\npaused: " + subscription.isPaused());
+    }
 
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            getLogger().info("Message not delivered! ChatID: " + chatId + " " + e.getMessage());
+    private void sendServerStatus(long chatId) {
+        if (isAdmin(chatId)) {
+            return;
+        }
+        PerfSampler sampler = TelegramRemote.getInstance().getPerfSampler();
+        if (sampler == null) {
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.status.disabled"));
+            return;
         }
+        sendMsg(chatId, sampler.render());
     }
 
-    private void sendBotSettings(long chatId) {
+    // /profile [30s|2m] [all] | /profile stop
+    private void handleProfileCommand(long chatId, String text) {
         if (isAdmin(chatId)) {
             return;
         }
-        TelegramRemote.getInstance().getConfig().getString("");
-        fsmContext.put(chatId, "BOT_SETTINGS");
-        InlineKeyboardMarkup inlineKeyboardMarkup = new InlineKeyboardMarkup();
-
-        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
+        SamplingProfiler profiler = TelegramRemote.getInstance().getProfiler();
+        if (profiler == null) {
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.profiler.disabled"));
+            return;
+        }
 
-        List<InlineKeyboardButton> row1 = new ArrayList<>();
-        InlineKeyboardButton languageButton = new InlineKeyboardButton();
-        languageButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.language_button") + TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.lang"));
-        languageButton.setCallbackData("language_button");
-        row1.add(languageButton);
-        rows.add(row1);
+        int seconds = 30;
+        boolean allThreads = false;
+        String[] parts = text.trim().split("\\s+");
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i].toLowerCase(Locale.ROOT);
+            if (part.equals("stop")) {
+                if (!profiler.stop()) {
+                    sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.profiler.not_running"));
+                }
+                return;
+            } else if (part.equals("all")) {
+                allThreads = true;
+            } else {
+                seconds = parseSeconds(part);
+                if (seconds <= 0) {
+                    sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.profiler.help"));
+                    return;
+                }
+            }
+        }
 
-        List<InlineKeyboardButton> row2 = new ArrayList<>();
-        InlineKeyboardButton notificationsButton = new InlineKeyboardButton();
-        notificationsButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.notifications_button"));
-        notificationsButton.setCallbackData("notifications_button");
-        row2.add(notificationsButton);
-        rows.add(row2);
+        seconds = Math.min(seconds, profiler.getMaxSeconds());
+        if (!profiler.start(chatId, seconds, allThreads)) {
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.profiler.already_running"));
+            return;
+        }
+        getLogger().info("Profiler started from Telegram for " + seconds + " s" + (allThreads ? " (all threads)" : "") + ". By " + chatId);
+        sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.profiler.started") + " " + seconds + " s");
+    }
 
-        List<InlineKeyboardButton> row3 = new ArrayList<>();
-        InlineKeyboardButton enableConsoleButton = new InlineKeyboardButton();
-        if (TelegramRemote.getInstance().getConfig().getBoolean("telegram.rcon.enable")) {
-            enableConsoleButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.enable_console_button") + "✅");
-        } else {
-            enableConsoleButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.enable_console_button") + "❌");
-        }
-        enableConsoleButton.setCallbackData("enable_console_button");
-        row3.add(enableConsoleButton);
-        rows.add(row3);
-
-        List<InlineKeyboardButton> row4 = new ArrayList<>();
-        InlineKeyboardButton adminAddButton = new InlineKeyboardButton();
-        adminAddButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.admin_add_button"));
-        adminAddButton.setCallbackData("admin_add_button");
-        row4.add(adminAddButton);
-        rows.add(row4);
-
-        List<InlineKeyboardButton> row5 = new ArrayList<>();
-        InlineKeyboardButton checkUpdateButton = new InlineKeyboardButton();
-        if (TelegramRemote.getInstance().getConfig().getBoolean("update.enable")) {
-            checkUpdateButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.check_update_button") + "✅");
+    // "30", "30s" or "2m"; -1 if it is none of these.
+    private static int parseSeconds(String value) {
+        int multiplier = 1;
+        if (value.endsWith("s")) {
+            value = value.substring(0, value.length() - 1);
+        } else if (value.endsWith("m")) {
+            value = value.substring(0, value.length() - 1);
+            multiplier = 60;
         }
-        else {
-            checkUpdateButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.check_update_button") + "❌");
+        try {
+            int amount = Integer.parseInt(value);
+            return amount > 0 && amount <= Integer.MAX_VALUE / multiplier ? amount * multiplier : -1;
+        } catch (NumberFormatException e) {
+            return -1;
         }
-        checkUpdateButton.setCallbackData("check_update_button");
-        row5.add(checkUpdateButton);
-        rows.add(row5);
+    }
 
-        inlineKeyboardMarkup.setKeyboard(rows);
+    private void cancelConfirm(long chatId) {
+        sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.normal_mode"));
+        sendAdminPanel(chatId);
+    }
 
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.settings_text"));
-        message.setReplyMarkup(inlineKeyboardMarkup);
+    @Override
+    public String getBotUsername() {
+        return "@" + TelegramRemote.getInstance().getConfig().getString("telegram.bot_username");
+    }
 
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+    @Override
+    public String getBotToken() {
+        return TelegramRemote.getInstance().getConfig().getString("telegram.token");
     }
-    
-    private void sendLogSettingsMenu(long chatId) {
+
+    private void handleStartCommand(long chatId) {
         if (isAdmin(chatId)) {
             return;
         }
-        fsmContext.put(chatId, "LOG_SETTINGS");
-        InlineKeyboardMarkup inlineKeyboardMarkup = new InlineKeyboardMarkup();
-
-        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
+        sessions.set(chatId, ChatState.DEFAULT);
 
-        List<InlineKeyboardButton> row1 = new ArrayList<>();
-        InlineKeyboardButton disabledButton = new InlineKeyboardButton();
-        disabledButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.log_settings.mode_disabled"));
-        disabledButton.setCallbackData("log_mode_disabled");
-        row1.add(disabledButton);
-        rows.add(row1);
+        sendMenuMessage(chatId, TelegramRemote.getMessage("messages.telegram.start"), KeyboardCache.Menu.MAIN, 0);
+    }
 
-        List<InlineKeyboardButton> row2 = new ArrayList<>();
-        InlineKeyboardButton importantButton = new InlineKeyboardButton();
-        importantButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.log_settings.mode_important"));
-        importantButton.setCallbackData("log_mode_important");
-        row2.add(importantButton);
-        rows.add(row2);
+    private void sendBotSettings(long chatId) {
+        if (isAdmin(chatId)) {
+            return;
+        }
+        sessions.set(chatId, ChatState.BOT_SETTINGS);
 
-        List<InlineKeyboardButton> row3 = new ArrayList<>();
-        InlineKeyboardButton allButton = new InlineKeyboardButton();
-        allButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.log_settings.mode_all"));
-        allButton.setCallbackData("log_mode_all");
-        row3.add(allButton);
-        rows.add(row3);
+        FileConfiguration config = TelegramRemote.getInstance().getConfig();
+        int flags = 0;
+        if (config.getBoolean("telegram.rcon.enable")) {
+            flags |= KeyboardCache.CONSOLE_ENABLED;
+        }
+        if (config.getBoolean("update.enable")) {
+            flags |= KeyboardCache.UPDATE_CHECK_ENABLED;
+        }
 
-        inlineKeyboardMarkup.setKeyboard(rows);
+        sendMenuMessage(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.settings_text"), KeyboardCache.Menu.BOT_SETTINGS, flags);
+    }
+    
+    private void sendLogSettingsMenu(long chatId) {
+        if (isAdmin(chatId)) {
+            return;
+        }
+        sessions.set(chatId, ChatState.LOG_SETTINGS);
 
         TelegramLogHandler logHandler = TelegramRemote.getInstance().getLogHandler();
         String currentMode = "UNKNOWN";
@@ -320,16 +495,7 @@ public class Main_BOT extends TelegramLongPollingBot {
                 TelegramRemote.getMessage("messages.telegram.admin_menu.log_settings.current_mode") + " " + 
                 formatLogMode(currentMode);
 
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(menuText);
-        message.setReplyMarkup(inlineKeyboardMarkup);
-
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        sendMenuMessage(chatId, menuText, KeyboardCache.Menu.LOG_SETTINGS, 0);
     }
     
     private String formatLogMode(String mode) {
@@ -364,20 +530,10 @@ public class Main_BOT extends TelegramLongPollingBot {
         }
 
         if (TelegramRemote.getInstance().getConfig().getBoolean("telegram.rcon.enable")) {
-            TelegramRemote.getInstance().getConfig().set("telegram.rcon.enable", false);
-            TelegramRemote.getInstance().saveConfig();
-
-            TelegramRemote.getInstance().reloadConfig();
-            TelegramRemote.getInstance().loadMessagesConfig();
-            Notifications_Event.getInstance().loadConfig();
+            TelegramRemote.getInstance().getSettings().set("telegram.rcon.enable", false);
         }
         else if (!TelegramRemote.getInstance().getConfig().getBoolean("telegram.rcon.enable")) {
-            TelegramRemote.getInstance().getConfig().set("telegram.rcon.enable", true);
-            TelegramRemote.getInstance().saveConfig();
-
-            TelegramRemote.getInstance().reloadConfig();
-            TelegramRemote.getInstance().loadMessagesConfig();
-            Notifications_Event.getInstance().loadConfig();
+            TelegramRemote.getInstance().getSettings().set("telegram.rcon.enable", true);
         }
         else {
             sendMsg(chatId, "Check the config is correct.");
@@ -392,20 +548,12 @@ public class Main_BOT extends TelegramLongPollingBot {
         }
 
         if (Objects.equals(TelegramRemote.getInstance().getConfig().getString("language"), "en")) {
-            TelegramRemote.getInstance().getConfig().set("language", "ru");
-            TelegramRemote.getInstance().saveConfig();
-
-            TelegramRemote.getInstance().reloadConfig();
+            TelegramRemote.getInstance().getSettings().set("language", "ru");
             TelegramRemote.getInstance().loadMessagesConfig();
-            Notifications_Event.getInstance().loadConfig();
         }
         else if (Objects.equals(TelegramRemote.getInstance().getConfig().getString("language"), "ru")) {
-            TelegramRemote.getInstance().getConfig().set("language", "en");
-            TelegramRemote.getInstance().saveConfig();
-
-            TelegramRemote.getInstance().reloadConfig();
+            TelegramRemote.getInstance().getSettings().set("language", "en");
             TelegramRemote.getInstance().loadMessagesConfig();
-            Notifications_Event.getInstance().loadConfig();
         }
         else {
             sendMsg(chatId, "Check the config is correct.");
@@ -420,20 +568,10 @@ public class Main_BOT extends TelegramLongPollingBot {
         }
 
         if (TelegramRemote.getInstance().getConfig().getBoolean("update.enable")) {
-            TelegramRemote.getInstance().getConfig().set("update.enable", false);
-            TelegramRemote.getInstance().saveConfig();
-
-            TelegramRemote.getInstance().reloadConfig();
-            TelegramRemote.getInstance().loadMessagesConfig();
-            Notifications_Event.getInstance().loadConfig();
+            TelegramRemote.getInstance().getSettings().set("update.enable", false);
         }
         else if (!TelegramRemote.getInstance().getConfig().getBoolean("update.enable")) {
-            TelegramRemote.getInstance().getConfig().set("update.enable", true);
-            TelegramRemote.getInstance().saveConfig();
-
-            TelegramRemote.getInstance().reloadConfig();
-            TelegramRemote.getInstance().loadMessagesConfig();
-            Notifications_Event.getInstance().loadConfig();
+            TelegramRemote.getInstance().getSettings().set("update.enable", true);
         }
         else {
             sendMsg(chatId, "Check the config is correct.");
@@ -446,177 +584,36 @@ public class Main_BOT extends TelegramLongPollingBot {
         if (isAdmin(chatId)) {
             return;
         }
-        fsmContext.put(chatId, "ADMIN_MENU");
-        InlineKeyboardMarkup inlineKeyboardMarkup = new InlineKeyboardMarkup();
-
-        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
+        sessions.set(chatId, ChatState.ADMIN_MENU);
 
-        List<InlineKeyboardButton> row1 = new ArrayList<>();
-        InlineKeyboardButton bot_settingsButton = new InlineKeyboardButton();
-        bot_settingsButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings"));
-        bot_settingsButton.setCallbackData("bot_settings");
-        row1.add(bot_settingsButton);
-        rows.add(row1);
-        
-        List<InlineKeyboardButton> rowLog = new ArrayList<>();
-        InlineKeyboardButton logSettingsButton = new InlineKeyboardButton();
-        logSettingsButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.log_settings_button"));
-        logSettingsButton.setCallbackData("log_settings");
-        rowLog.add(logSettingsButton);
-        rows.add(rowLog);
-
-        List<InlineKeyboardButton> row2 = new ArrayList<>();
-        InlineKeyboardButton reload_pluginButton = new InlineKeyboardButton();
-        reload_pluginButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.reload_plugin"));
-        reload_pluginButton.setCallbackData("reload_plugin");
-        row2.add(reload_pluginButton);
-        rows.add(row2);
-
-        List<InlineKeyboardButton> row3 = new ArrayList<>();
-        InlineKeyboardButton reloadButton = new InlineKeyboardButton();
-        reloadButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.reload"));
-        reloadButton.setCallbackData("reload");
-        row3.add(reloadButton);
-        rows.add(row3);
-
-        List<InlineKeyboardButton> row4 = new ArrayList<>();
-        InlineKeyboardButton restartButton = new InlineKeyboardButton();
-        restartButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.restart"));
-        restartButton.setCallbackData("restart");
-        row4.add(restartButton);
-        rows.add(row4);
-
-        List<InlineKeyboardButton> row5 = new ArrayList<>();
-        InlineKeyboardButton shutdownButton = new InlineKeyboardButton();
-        shutdownButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.shutdown"));
-        shutdownButton.setCallbackData("shutdown");
-        row5.add(shutdownButton);
-        rows.add(row5);
-
-        inlineKeyboardMarkup.setKeyboard(rows);
-
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.main_menu"));
-        message.setReplyMarkup(inlineKeyboardMarkup);
-
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        sendMenuMessage(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.main_menu"), KeyboardCache.Menu.ADMIN_PANEL, 0);
     }
 
     private void sendConfirmReload(long chatId) {
         if (isAdmin(chatId)) {
             return;
         }
-        fsmContext.put(chatId, "CONFIRM_RELOAD");
+        sessions.set(chatId, ChatState.CONFIRM_RELOAD);
 
-        InlineKeyboardMarkup inlineKeyboardMarkupReload = new InlineKeyboardMarkup();
-
-        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
-
-        List<InlineKeyboardButton> row1 = new ArrayList<>();
-        InlineKeyboardButton yesButton = new InlineKeyboardButton();
-        yesButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.yes_text"));
-        yesButton.setCallbackData("confirm_yes_reload");
-
-        InlineKeyboardButton noButton = new InlineKeyboardButton();
-        noButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.no_text"));
-        noButton.setCallbackData("confirm_no_reload");
-
-        row1.add(yesButton);
-        row1.add(noButton);
-        rows.add(row1);
-
-        inlineKeyboardMarkupReload.setKeyboard(rows);
-
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.confirm_text"));
-        message.setReplyMarkup(inlineKeyboardMarkupReload);
-
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        sendMenuMessage(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.confirm_text"), KeyboardCache.Menu.CONFIRM_RELOAD, 0);
     }
 
     private void sendConfirmRestart(long chatId) {
         if (isAdmin(chatId)) {
             return;
         }
-        fsmContext.put(chatId, "CONFIRM_RESTART");
-
-        InlineKeyboardMarkup inlineKeyboardMarkupRestart = new InlineKeyboardMarkup();
-
-        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
-
-        List<InlineKeyboardButton> row1 = new ArrayList<>();
-        InlineKeyboardButton yesButton = new InlineKeyboardButton();
-        yesButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.yes_text"));
-        yesButton.setCallbackData("confirm_yes_restart");
-
-        InlineKeyboardButton noButton = new InlineKeyboardButton();
-        noButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.no_text"));
-        noButton.setCallbackData("confirm_no_restart");
-
-        row1.add(yesButton);
-        row1.add(noButton);
-        rows.add(row1);
+        sessions.set(chatId, ChatState.CONFIRM_RESTART);
 
-        inlineKeyboardMarkupRestart.setKeyboard(rows);
-
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.confirm_text"));
-        message.setReplyMarkup(inlineKeyboardMarkupRestart);
-
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        sendMenuMessage(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.confirm_text"), KeyboardCache.Menu.CONFIRM_RESTART, 0);
     }
 
     private void sendConfirmShutdown(long chatId) {
         if (isAdmin(chatId)) {
             return;
         }
+        sessions.set(chatId, ChatState.CONFIRM_SHUTDOWN);
 
-        fsmContext.put(chatId, "CONFIRM_SHUTDOWN");
-
-        InlineKeyboardMarkup inlineKeyboardMarkupShutdown = new InlineKeyboardMarkup();
-
-        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
-
-        List<InlineKeyboardButton> row1 = new ArrayList<>();
-        InlineKeyboardButton yesButton = new InlineKeyboardButton();
-        yesButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.yes_text"));
-        yesButton.setCallbackData("confirm_yes_shutdown");
-
-        InlineKeyboardButton noButton = new InlineKeyboardButton();
-        noButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.no_text"));
-        noButton.setCallbackData("confirm_no_shutdown");
-
-        row1.add(yesButton);
-        row1.add(noButton);
-        rows.add(row1);
-
-        inlineKeyboardMarkupShutdown.setKeyboard(rows);
-
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.confirm_text"));
-        message.setReplyMarkup(inlineKeyboardMarkupShutdown);
-
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        sendMenuMessage(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.confirm.confirm_text"), KeyboardCache.Menu.CONFIRM_SHUTDOWN, 0);
     }
     private void handleConsoleCommand(long chatId) {
         if (isAdmin(chatId)) {
@@ -625,33 +622,12 @@ public class Main_BOT extends TelegramLongPollingBot {
 
         FileConfiguration config = TelegramRemote.getInstance().getConfig();
         if (config.getBoolean("telegram.rcon.enable")) {
-            fsmContext.put(chatId, "CONSOLE_MODE");
-
-            ReplyKeyboardMarkup replyMarkup = new ReplyKeyboardMarkup();
-            replyMarkup.setSelective(true);
-            replyMarkup.setResizeKeyboard(true);
-            replyMarkup.setOneTimeKeyboard(false);
-
-            List<KeyboardRow> keyboard = new ArrayList<>();
-            KeyboardRow row = new KeyboardRow();
-            row.add(new KeyboardButton("/quit"));
-            keyboard.add(row);
-
-            replyMarkup.setKeyboard(keyboard);
-
-            SendMessage message = new SendMessage();
-            message.setChatId(chatId);
-            message.setText(TelegramRemote.getMessage("messages.telegram.console"));
-            message.setReplyMarkup(replyMarkup);
+            sessions.set(chatId, ChatState.CONSOLE_MODE);
 
-            try {
-                execute(message);
-            } catch (TelegramApiException e) {
-                getLogger().info("Message not delivered! ChatID: " + chatId + " " + e.getMessage());
-            }
+            sendMenuMessage(chatId, TelegramRemote.getMessage("messages.telegram.console"), KeyboardCache.Menu.CONSOLE, 0);
         }
-        else if (!config.getBoolean("telegram.rcon.enable")){
-            fsmContext.put(chatId, "DEFAULT");
+        else {
+            sessions.set(chatId, ChatState.DEFAULT);
             sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.console_disabled"));
         }
     }
@@ -660,57 +636,21 @@ public class Main_BOT extends TelegramLongPollingBot {
         if (isAdmin(chatId)) {
             return;
         }
-        fsmContext.put(chatId, "NOTIFICATIONS_MENU");
-        InlineKeyboardMarkup inlineKeyboardMarkup = new InlineKeyboardMarkup();
+        sessions.set(chatId, ChatState.NOTIFICATIONS_MENU);
 
-        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
-
-        List<InlineKeyboardButton> row1 = new ArrayList<>();
-        InlineKeyboardButton notificationOpButton = new InlineKeyboardButton();
-        if (TelegramRemote.getInstance().getConfig().getBoolean("telegram.notifications.enable_op")) {
-            notificationOpButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.notification_op") + "✅");
-        } else {
-            notificationOpButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.notification_op") + "❌");
+        FileConfiguration config = TelegramRemote.getInstance().getConfig();
+        int flags = 0;
+        if (config.getBoolean("telegram.notifications.enable_op")) {
+            flags |= KeyboardCache.NOTIFY_OP;
         }
-        notificationOpButton.setCallbackData("notification_op");
-        row1.add(notificationOpButton);
-        rows.add(row1);
-
-        List<InlineKeyboardButton> row2 = new ArrayList<>();
-        InlineKeyboardButton notificationStartedButton = new InlineKeyboardButton();
-        if (TelegramRemote.getInstance().getConfig().getBoolean("telegram.notifications.enable_bot_started")) {
-            notificationStartedButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.notification_bot_started") + "✅");
-        } else {
-            notificationStartedButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.notification_bot_started") + "❌");
+        if (config.getBoolean("telegram.notifications.enable_bot_started")) {
+            flags |= KeyboardCache.NOTIFY_BOT_STARTED;
         }
-        notificationStartedButton.setCallbackData("notification_started");
-        row2.add(notificationStartedButton);
-        rows.add(row2);
-
-
-        List<InlineKeyboardButton> row3 = new ArrayList<>();
-        InlineKeyboardButton notificationUpdateButton = new InlineKeyboardButton();
-        if (TelegramRemote.getInstance().getConfig().getBoolean("telegram.notifications.enable_update")) {
-            notificationUpdateButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.notification_update") + "✅");
-        } else {
-            notificationUpdateButton.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.notification_update") + "❌");
+        if (config.getBoolean("telegram.notifications.enable_update")) {
+            flags |= KeyboardCache.NOTIFY_UPDATE;
         }
-        notificationUpdateButton.setCallbackData("notification_update");
-        row3.add(notificationUpdateButton);
-        rows.add(row3);
-
-        inlineKeyboardMarkup.setKeyboard(rows);
 
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.notifications_message"));
-        message.setReplyMarkup(inlineKeyboardMarkup);
-
-        try {
-            execute(message);
-        } catch (TelegramApiException e) {
-            e.printStackTrace();
-        }
+        sendMenuMessage(chatId, TelegramRemote.getMessage("messages.telegram.admin_menu.settings_bot.notifications_message"), KeyboardCache.Menu.NOTIFICATIONS, flags);
     }
 
     private void changeNotif(long chatId, String notif) {
@@ -720,18 +660,10 @@ public class Main_BOT extends TelegramLongPollingBot {
         switch (notif) {
             case "notification_op":
                 if (TelegramRemote.getInstance().getConfig().getBoolean("telegram.notifications.enable_op")) {
-                    TelegramRemote.getInstance().getConfig().set("telegram.notifications.enable_op", false);
-                    TelegramRemote.getInstance().saveConfig();
-
-                    TelegramRemote.getInstance().reloadConfig();
-                    TelegramRemote.getInstance().loadMessagesConfig();
+                    TelegramRemote.getInstance().getSettings().set("telegram.notifications.enable_op", false);
                     Notifications_Event.getInstance().loadConfig();
                 } else if (!TelegramRemote.getInstance().getConfig().getBoolean("telegram.notifications.enable_op")) {
-                    TelegramRemote.getInstance().getConfig().set("telegram.notifications.enable_op", true);
-                    TelegramRemote.getInstance().saveConfig();
-
-                    TelegramRemote.getInstance().reloadConfig();
-                    TelegramRemote.getInstance().loadMessagesConfig();
+                    TelegramRemote.getInstance().getSettings().set("telegram.notifications.enable_op", true);
                     Notifications_Event.getInstance().loadConfig();
                 } else {
                     sendMsg(chatId, "Check the config is correct.");
@@ -740,19 +672,9 @@ public class Main_BOT extends TelegramLongPollingBot {
                 
             case "notification_started":
                 if (TelegramRemote.getInstance().getConfig().getBoolean("telegram.notifications.enable_bot_started")) {
-                    TelegramRemote.getInstance().getConfig().set("telegram.notifications.enable_bot_started", false);
-                    TelegramRemote.getInstance().saveConfig();
-
-                    TelegramRemote.getInstance().reloadConfig();
-                    TelegramRemote.getInstance().loadMessagesConfig();
-                    Notifications_Event.getInstance().loadConfig();
+                    TelegramRemote.getInstance().getSettings().set("telegram.notifications.enable_bot_started", false);
                 } else if (!TelegramRemote.getInstance().getConfig().getBoolean("telegram.notifications.enable_bot_started")) {
-                    TelegramRemote.getInstance().getConfig().set("telegram.notifications.enable_bot_started", true);
-                    TelegramRemote.getInstance().saveConfig();
-
-                    TelegramRemote.getInstance().reloadConfig();
-                    TelegramRemote.getInstance().loadMessagesConfig();
-                    Notifications_Event.getInstance().loadConfig();
+                    TelegramRemote.getInstance().getSettings().set("telegram.notifications.enable_bot_started", true);
                 } else {
                     sendMsg(chatId, "Check the config is correct.");
                 }
@@ -760,19 +682,9 @@ public class Main_BOT extends TelegramLongPollingBot {
                 
             case "notification_update":
                 if (TelegramRemote.getInstance().getConfig().getBoolean("telegram.notifications.enable_update")) {
-                    TelegramRemote.getInstance().getConfig().set("telegram.notifications.enable_update", false);
-                    TelegramRemote.getInstance().saveConfig();
-
-                    TelegramRemote.getInstance().reloadConfig();
-                    TelegramRemote.getInstance().loadMessagesConfig();
-                    Notifications_Event.getInstance().loadConfig();
+                    TelegramRemote.getInstance().getSettings().set("telegram.notifications.enable_update", false);
                 } else if (!TelegramRemote.getInstance().getConfig().getBoolean("telegram.notifications.enable_update")) {
-                    TelegramRemote.getInstance().getConfig().set("telegram.notifications.enable_update", true);
-                    TelegramRemote.getInstance().saveConfig();
-
-                    TelegramRemote.getInstance().reloadConfig();
-                    TelegramRemote.getInstance().loadMessagesConfig();
-                    Notifications_Event.getInstance().loadConfig();
+                    TelegramRemote.getInstance().getSettings().set("telegram.notifications.enable_update", true);
                 } else {
                     sendMsg(chatId, "Check the config is correct.");
                 }
@@ -784,29 +696,44 @@ public class Main_BOT extends TelegramLongPollingBot {
 
     public void bot_started_notif() {
         FileConfiguration config = TelegramRemote.getInstance().getConfig();
-        List<Long> adminChatIds = config.getLongList("telegram.admin_ids");
         String enableStartNotif = config.getString("telegram.notifications.enable_bot_started");
 
         if (enableStartNotif != null && enableStartNotif.equals("true")) {
-            for (Long adminChatId : adminChatIds) {
-                sendMsg(adminChatId, TelegramRemote.getMessage("messages.telegram.bot_started"));
-            }
+            String text = TelegramRemote.getMessage("messages.telegram.bot_started");
+            broadcaster.broadcast(TelegramRemote.getInstance().getAdmins().get(), text);
         }
     }
 
-    public void rcon(String command, long chatId) {
+    public void executeCommand(String command, long chatId) {
         if (isAdmin(chatId)) {
             return;
         }
-        String currentState = fsmContext.getOrDefault(chatId, "DEFAULT");
-        FileConfiguration config = TelegramRemote.getInstance().getConfig();
-        try (RconClient client = RconClient.open(Objects.requireNonNull(config.getString("telegram.rcon.rcon_host")), config.getInt("telegram.rcon.rcon_port"), Objects.requireNonNull(config.getString("telegram.rcon.rcon_pass")))) {
-            String serverResponse = client.sendCommand(command);
-            if (currentState.equals("CONSOLE_MODE")) {
-                sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.cmd_successfully_send"));
-                if (serverResponse != null && !serverResponse.isEmpty()) {
-                    sendMsg(chatId, serverResponse);
-                }
+        ChatState currentState = sessions.get(chatId);
+        // Commands of one chat run and are answered in the order they were sent, whatever runner is used.
+        CompletableFuture<Void> chained = consoleCommands.compute(chatId, (key, previous) ->
+                (previous != null ? previous : CompletableFuture.<Void>completedFuture(null))
+                        .thenCompose(ignored -> TelegramRemote.getInstance().getCommandRunner().run(command))
+                        .handle((serverResponse, error) -> {
+                            answerCommand(chatId, currentState, serverResponse, error);
+                            return null;
+                        }));
+        chained.whenComplete((result, error) -> consoleCommands.remove(chatId, chained));
+    }
+
+    private void answerCommand(long chatId, ChatState currentState, String serverResponse, Throwable error) {
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            getLogger().warning("[TG-Console] Command error: " + cause.getMessage());
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.command_error") + cause.getMessage());
+            return;
+        }
+        if (currentState == ChatState.CONSOLE_MODE) {
+            sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.cmd_successfully_send"));
+            if (serverResponse != null && !serverResponse.isEmpty()) {
+                consoleOutput.send(chatId, serverResponse);
+            } else {
+                // In-process runs do not see vanilla feedback; say so rather than stay silent.
+                sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.no_output"));
             }
         }
     }
@@ -816,59 +743,95 @@ public class Main_BOT extends TelegramLongPollingBot {
             return;
         }
 
-        String currentState = fsmContext.getOrDefault(chatId, "DEFAULT");
-        ReplyKeyboardMarkup replyMarkup = new ReplyKeyboardMarkup();
-        replyMarkup.setSelective(true);
-        replyMarkup.setResizeKeyboard(true);
-        replyMarkup.setOneTimeKeyboard(false);
+        if (sessions.get(chatId) == ChatState.CONSOLE_MODE) {
+            sendMenuMessage(chatId, TelegramRemote.getMessage("messages.telegram.quit_console"), KeyboardCache.Menu.MAIN, 0);
+        }
+        else {
+            sendMenuMessage(chatId, TelegramRemote.getMessage("messages.telegram.back_menu"), KeyboardCache.Menu.MAIN, 0);
+        }
+    }
 
-        List<KeyboardRow> keyboard = new ArrayList<>();
-        KeyboardRow row = new KeyboardRow();
-        row.add(new KeyboardButton(TelegramRemote.getMessage("messages.telegram.admin_menu.menu_admin")));
-        keyboard.add(row);
+    // The message the pressed button belongs to, while a callback is being handled.
+    private Integer callbackMessageId() {
+        Message target = editTarget.get();
+        return target != null ? target.getMessageId() : null;
+    }
 
-        row = new KeyboardRow();
-        row.add(new KeyboardButton(TelegramRemote.getMessage("messages.telegram.admin_menu.console_menu")));
-        keyboard.add(row);
-        
-        row = new KeyboardRow();
-        row.add(new KeyboardButton(TelegramRemote.getMessage("messages.telegram.admin_menu.logs_menu")));
-        keyboard.add(row);
+    private void sendMenuMessage(long chatId, String text, KeyboardCache.Menu menu, int flags) {
+        ReplyKeyboard markup = keyboards.get(menu, flags);
+        Message target = editTarget.get();
+        if (target != null && target.getChatId() == chatId && markup instanceof InlineKeyboardMarkup) {
+            editTarget.remove();
+            editMenuMessage(chatId, target, text, (InlineKeyboardMarkup) markup);
+            return;
+        }
 
-        replyMarkup.setKeyboard(keyboard);
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId);
+        message.setText(text);
+        message.setReplyMarkup(markup);
 
-        if (currentState.equals("CONSOLE_MODE")) {
-            SendMessage message = new SendMessage();
-            message.setChatId(chatId);
-            message.setText(TelegramRemote.getMessage("messages.telegram.quit_console"));
-            message.setReplyMarkup(replyMarkup);
+        outbound.submit(chatId, message, false);
+    }
 
-            try {
-                execute(message);
-            } catch (TelegramApiException e) {
-                getLogger().info("Message not delivered! ChatID: " + chatId + " " + e.getMessage());
-            }
+    private void editMenuMessage(long chatId, Message target, String text, InlineKeyboardMarkup markup) {
+        CompletableFuture<?> edited;
+        if (text.equals(target.getText())) {
+            EditMessageReplyMarkup edit = new EditMessageReplyMarkup();
+            edit.setChatId(chatId);
+            edit.setMessageId(target.getMessageId());
+            edit.setReplyMarkup(markup);
+            edited = outbound.submit(chatId, edit, true);
         }
         else {
+            EditMessageText edit = new EditMessageText();
+            edit.setChatId(chatId);
+            edit.setMessageId(target.getMessageId());
+            edit.setText(text);
+            edit.setReplyMarkup(markup);
+            edited = outbound.submit(chatId, edit, true);
+        }
+
+        edited.whenComplete((result, error) -> {
+            if (error == null) {
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            // Pressing a button that leads to the same menu is not an error worth a new message.
+            if (cause.getMessage() != null && cause.getMessage().contains("message is not modified")) {
+                return;
+            }
             SendMessage message = new SendMessage();
             message.setChatId(chatId);
-            message.setText(TelegramRemote.getMessage("messages.telegram.back_menu"));
-            message.setReplyMarkup(replyMarkup);
+            message.setText(text);
+            message.setReplyMarkup(markup);
+            outbound.submit(chatId, message, false);
+        });
+    }
 
-            try {
-                execute(message);
-            } catch (TelegramApiException e) {
-                getLogger().info("Message not delivered! ChatID: " + chatId + " " + e.getMessage());
-            }
+    private void answerCallback(String callbackQueryId) {
+        AnswerCallbackQuery answer = new AnswerCallbackQuery();
+        answer.setCallbackQueryId(callbackQueryId);
+        // Sent straight away rather than through the outbound queue: the client shows a spinner until it arrives.
+        // It still counts as a Telegram request in the metrics.
+        metrics.telegramRequests.increment();
+        long start = System.nanoTime();
+        try {
+            executeAsync(answer).whenComplete((result, error) -> {
+                metrics.telegramLatency.recordSince(start);
+                if (error != null) {
+                    metrics.telegramErrors.increment();
+                }
+            });
+        } catch (TelegramApiException e) {
+            metrics.telegramErrors.increment();
+            getLogger().info("Callback not answered! " + e.getMessage());
         }
     }
 
     private boolean isAdmin(long chatId) {
-        FileConfiguration config = TelegramRemote.getInstance().getConfig();
-        List<Long> adminChatIds = config.getLongList("telegram.admin_ids");
-        if (!adminChatIds.contains(chatId)) {
+        if (!TelegramRemote.getInstance().getAdmins().contains(chatId)) {
             sendMsg(chatId, TelegramRemote.getMessage("messages.telegram.admin_not_found"));
-            fsmContext.put(chatId, "DEFAULT");
             return true;
         }
 
@@ -880,23 +843,31 @@ public class Main_BOT extends TelegramLongPollingBot {
         message.setChatId(chatId);
         message.setText(messageText);
 
-        try {
-            execute(message);
-        }
-        catch (TelegramApiException e) {
-            getLogger().info("Message not delivered! ChatID: " + chatId + " " + e.getMessage());
-        }
+        outbound.submit(chatId, message, false);
     }
     
-    public void sendSilentMsg(long chatId, String messageText) {
-        SendMessage message = new SendMessage();
-        message.setChatId(chatId);
-        message.setText(messageText);
+    public CompletableFuture<Message> sendDocument(long chatId, File file, String fileName, String caption) {
+        SendDocument document = new SendDocument();
+        document.setChatId(chatId);
+        document.setDocument(new InputFile(file, fileName));
+        document.setCaption(caption);
 
-        try {
-            execute(message);
-        }
-        catch (TelegramApiException e) {
-        }
+        return outbound.submit(chatId, sender -> sender.execute(document), false);
+    }
+
+    public ChatSerialExecutor getUpdates() {
+        return updates;
+    }
+
+    public SessionStore getSessions() {
+        return sessions;
+    }
+
+    public OutboundDispatcher getOutbound() {
+        return outbound;
+    }
+
+    public Broadcaster getBroadcaster() {
+        return broadcaster;
     }
 }
\ No newline at end of file
@@ -0,0 +1,307 @@
+package me.drazz.telegramremote.bot;
+
+import me.drazz.telegramremote.metrics.Metrics;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.bukkit.Bukkit.getLogger;
+
+/**
+ * Non-blocking outbound queue for Telegram API calls.
+ * Callers only enqueue; a dispatcher thread releases calls under a global
+ * and a per-chat token bucket and hands them to a small sender pool.
+ * Calls for the same chat are delivered strictly in order.
+ */
+public class OutboundDispatcher {
+
+    private static final int QUEUE_CAPACITY = 1000;
+    private static final double GLOBAL_PER_SECOND = 30.0;
+    private static final int GLOBAL_BURST = 30;
+    private static final double CHAT_PER_SECOND = 1.0;
+    private static final int CHAT_BURST = 3;
+    // Matches the per-route limit of the sender's pooled HTTP client, so every sender thread keeps a warm connection.
+    private static final int SENDER_THREADS = 2;
+    private static final int MAX_RETRIES = 3;
+    private static final long IDLE_LANE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    @FunctionalInterface
+    public interface Call<T> {
+        T execute(AbsSender sender) throws TelegramApiException;
+    }
+
+    private final AbsSender sender;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<Long, Lane> lanes = new HashMap<>();
+    private final TokenBucket globalBucket = new TokenBucket(GLOBAL_PER_SECOND, GLOBAL_BURST);
+    private final ExecutorService senders;
+    private final Thread dispatcherThread;
+    private final Metrics metrics;
+    private int queued;
+    // nanoTime values may be negative, so "paused" cannot be told from a zero deadline.
+    private boolean globalPaused;
+    private long globalPausedUntil;
+    private volatile boolean running = true;
+
+    public OutboundDispatcher(AbsSender sender, Metrics metrics) {
+        this.sender = sender;
+        this.metrics = metrics;
+        this.senders = Executors.newFixedThreadPool(SENDER_THREADS, r -> {
+            Thread thread = new Thread(r, "TelegramRemote-Sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dispatcherThread = new Thread(this::dispatchLoop, "TelegramRemote-Dispatcher");
+        this.dispatcherThread.setDaemon(true);
+        this.dispatcherThread.start();
+    }
+
+    public <T extends Serializable> CompletableFuture<T> submit(long chatId, BotApiMethod<T> method, boolean silent) {
+        return submit(chatId, s -> s.execute(method), silent);
+    }
+
+    public <T> CompletableFuture<T> submit(long chatId, Call<T> call, boolean silent) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        lock.lock();
+        try {
+            if (!running || queued >= QUEUE_CAPACITY) {
+                if (!silent) {
+                    getLogger().info("Message not delivered! ChatID: " + chatId + " Outbound queue is full");
+                }
+                future.completeExceptionally(new TelegramApiException("Outbound queue is full"));
+                return future;
+            }
+            Lane lane = lanes.get(chatId);
+            if (lane == null) {
+                lane = new Lane(chatId);
+                lanes.put(chatId, lane);
+            }
+            lane.pending.addLast(new Task<>(call, future, silent));
+            queued++;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return future;
+    }
+
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        dispatcherThread.interrupt();
+        senders.shutdown();
+        try {
+            if (!senders.awaitTermination(5, TimeUnit.SECONDS)) {
+                senders.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            senders.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        failPending();
+    }
+
+    // Whatever is still queued will never be sent; its callers must not wait forever (temp files, in-flight flags).
+    private void failPending() {
+        lock.lock();
+        try {
+            for (Lane lane : lanes.values()) {
+                Task<?> task;
+                while ((task = lane.pending.pollFirst()) != null) {
+                    task.future.completeExceptionally(new TelegramApiException("Outbound dispatcher stopped"));
+                }
+            }
+            lanes.clear();
+            queued = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        lock.lock();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                long waitNanos = dispatchReady(now);
+                try {
+                    if (waitNanos == Long.MAX_VALUE) {
+                        changed.await();
+                    } else if (waitNanos > 0) {
+                        changed.awaitNanos(waitNanos);
+                    }
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must be called with the lock held. Returns how long to sleep until something may become ready.
+    private long dispatchReady(long now) {
+        long wait = Long.MAX_VALUE;
+        if (globalPaused) {
+            long left = globalPausedUntil - now;
+            if (left > 0) {
+                return left;
+            }
+            globalPaused = false;
+        }
+
+        Iterator<Lane> iterator = lanes.values().iterator();
+        while (iterator.hasNext()) {
+            Lane lane = iterator.next();
+            if (lane.pending.isEmpty()) {
+                if (!lane.inFlight && now - lane.lastUsed > IDLE_LANE_NANOS) {
+                    iterator.remove();
+                }
+                continue;
+            }
+            if (lane.inFlight) {
+                continue;
+            }
+            if (lane.paused) {
+                long left = lane.pausedUntil - now;
+                if (left > 0) {
+                    wait = Math.min(wait, left);
+                    continue;
+                }
+                lane.paused = false;
+            }
+            long laneWait = lane.bucket.nanosUntilToken(now);
+            if (laneWait > 0) {
+                wait = Math.min(wait, laneWait);
+                continue;
+            }
+            long globalWait = globalBucket.nanosUntilToken(now);
+            if (globalWait > 0) {
+                return Math.min(wait, globalWait);
+            }
+
+            lane.bucket.take();
+            globalBucket.take();
+            lane.inFlight = true;
+            lane.lastUsed = now;
+            Task<?> task = lane.pending.pollFirst();
+            queued--;
+            try {
+                senders.execute(() -> deliver(lane, task));
+            } catch (RuntimeException e) {
+                lane.inFlight = false;
+                task.future.completeExceptionally(e);
+            }
+        }
+        return wait;
+    }
+
+    private <T> void deliver(Lane lane, Task<T> task) {
+        boolean requeue = false;
+        long start = System.nanoTime();
+        metrics.telegramRequests.increment();
+        try {
+            T result = task.call.execute(sender);
+            metrics.telegramLatency.recordSince(start);
+            task.future.complete(result);
+        } catch (TelegramApiRequestException e) {
+            metrics.telegramLatency.recordSince(start);
+            Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+            if (retryAfter != null && task.attempts < MAX_RETRIES) {
+                task.attempts++;
+                requeue = true;
+                metrics.telegramRetries.increment();
+                long pause = System.nanoTime() + TimeUnit.SECONDS.toNanos(retryAfter);
+                lock.lock();
+                try {
+                    lane.paused = true;
+                    lane.pausedUntil = pause;
+                    if (e.getErrorCode() != null && e.getErrorCode() == 429 && (!globalPaused || pause - globalPausedUntil > 0)) {
+                        globalPaused = true;
+                        globalPausedUntil = pause;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                fail(lane, task, e);
+            }
+        } catch (TelegramApiException | RuntimeException e) {
+            metrics.telegramLatency.recordSince(start);
+            fail(lane, task, e);
+        } finally {
+            lock.lock();
+            try {
+                if (requeue && running) {
+                    lane.pending.addFirst(task);
+                    queued++;
+                } else if (requeue) {
+                    task.future.completeExceptionally(new TelegramApiException("Outbound dispatcher stopped"));
+                }
+                lane.inFlight = false;
+                changed.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void fail(Lane lane, Task<?> task, Exception e) {
+        metrics.telegramErrors.increment();
+        if (!task.silent) {
+            getLogger().info("Message not delivered! ChatID: " + lane.chatId + " " + e.getMessage());
+        }
+        task.future.completeExceptionally(e);
+    }
+
+    private static final class Lane {
+        private final long chatId;
+        private final ArrayDeque<Task<?>> pending = new ArrayDeque<>();
+        private final TokenBucket bucket = new TokenBucket(CHAT_PER_SECOND, CHAT_BURST);
+        private boolean inFlight;
+        private boolean paused;
+        private long pausedUntil;
+        private long lastUsed = System.nanoTime();
+
+        private Lane(long chatId) {
+            this.chatId = chatId;
+        }
+    }
+
+    private static final class Task<T> {
+        private final Call<T> call;
+        private final CompletableFuture<T> future;
+        private final boolean silent;
+        private int attempts;
+
+        private Task(Call<T> call, CompletableFuture<T> future, boolean silent) {
+            this.call = call;
+            this.future = future;
+            this.silent = silent;
+        }
+    }
+}
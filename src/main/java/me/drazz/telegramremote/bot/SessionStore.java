@@ -0,0 +1,116 @@
+package me.drazz.telegramremote.bot;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongPredicate;
+
+/**
+ * Menu state of each chat. {@link ChatState#DEFAULT} is never stored, chats rejected by the
+ * filter never get an entry, idle sessions expire after the TTL and the number of entries is capped.
+ */
+public class SessionStore {
+
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final LongPredicate allowed;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "TelegramRemote-Sessions");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SessionStore(LongPredicate allowed, long ttlMillis, int maxEntries) {
+        this.allowed = allowed;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = Math.max(1, maxEntries);
+        sweeper.scheduleWithFixedDelay(this::evictExpired, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public ChatState get(long chatId) {
+        Session session = sessions.get(chatId);
+        if (session == null) {
+            return ChatState.DEFAULT;
+        }
+        long now = System.currentTimeMillis();
+        if (now - session.lastAccess >= ttlMillis || !allowed.test(chatId)) {
+            sessions.remove(chatId, session);
+            return ChatState.DEFAULT;
+        }
+        session.lastAccess = now;
+        return session.state;
+    }
+
+    public void set(long chatId, ChatState state) {
+        if (state == ChatState.DEFAULT) {
+            sessions.remove(chatId);
+            return;
+        }
+        if (!allowed.test(chatId)) {
+            return;
+        }
+
+        Session session = sessions.get(chatId);
+        if (session != null) {
+            session.state = state;
+            session.lastAccess = System.currentTimeMillis();
+            return;
+        }
+        // Only inserts grow the map, and they take turns, so the cap holds with any number of update threads.
+        synchronized (this) {
+            session = sessions.get(chatId);
+            if (session != null) {
+                session.state = state;
+                session.lastAccess = System.currentTimeMillis();
+                return;
+            }
+            if (sessions.size() >= maxEntries) {
+                evictExpired();
+                while (sessions.size() >= maxEntries) {
+                    evictLeastRecent();
+                }
+            }
+            sessions.put(chatId, new Session(state));
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+        sessions.clear();
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(session -> now - session.lastAccess >= ttlMillis);
+    }
+
+    private void evictLeastRecent() {
+        Map.Entry<Long, Session> oldest = null;
+        for (Map.Entry<Long, Session> entry : sessions.entrySet()) {
+            if (oldest == null || entry.getValue().lastAccess < oldest.getValue().lastAccess) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null) {
+            sessions.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private static final class Session {
+        private volatile ChatState state;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private Session(ChatState state) {
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package me.drazz.telegramremote.bot;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket driven by {@link System#nanoTime()}. Not thread-safe, callers synchronise.
+ */
+final class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(double perSecond, int burst) {
+        this.tokensPerNano = perSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    long nanosUntilToken(long now) {
+        refill(now);
+        if (tokens >= 1.0) {
+            return 0;
+        }
+        return (long) Math.ceil((1.0 - tokens) / tokensPerNano);
+    }
+
+    void take() {
+        tokens -= 1.0;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+            lastRefill = now;
+        }
+    }
+}
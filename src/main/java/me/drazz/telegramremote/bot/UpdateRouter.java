@@ -0,0 +1,101 @@
+package me.drazz.telegramremote.bot;
+
+import me.drazz.telegramremote.TelegramRemote;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps incoming text and callback data to handlers with hash lookups.
+ * Routes are registered once; localized button labels are resolved by {@link #compile()},
+ * which has to run again whenever the messages file is reloaded.
+ */
+public class UpdateRouter {
+
+    @FunctionalInterface
+    public interface Handler {
+        void handle(long chatId, String text);
+    }
+
+    private final Map<String, Handler> buttonKeys = new HashMap<>();
+    private final Map<String, Handler> commands = new HashMap<>();
+    private final Map<ChatState, Handler> stateText = new EnumMap<>(ChatState.class);
+    private final Map<ChatState, Map<String, Handler>> stateCallbacks = new EnumMap<>(ChatState.class);
+    private final Map<String, Handler> anyStateCallbacks = new HashMap<>();
+    private volatile Map<String, Handler> buttons = new HashMap<>();
+
+    public UpdateRouter command(String command, Handler handler) {
+        commands.put(command.toLowerCase(Locale.ROOT), handler);
+        return this;
+    }
+
+    public UpdateRouter button(String messageKey, Handler handler) {
+        buttonKeys.put(messageKey, handler);
+        return this;
+    }
+
+    public UpdateRouter text(ChatState state, Handler handler) {
+        stateText.put(state, handler);
+        return this;
+    }
+
+    public UpdateRouter callback(ChatState state, String data, Handler handler) {
+        stateCallbacks.computeIfAbsent(state, s -> new HashMap<>()).put(data, handler);
+        return this;
+    }
+
+    public UpdateRouter callback(String data, Handler handler) {
+        anyStateCallbacks.put(data, handler);
+        return this;
+    }
+
+    public void compile() {
+        Map<String, Handler> compiled = new HashMap<>(buttonKeys.size() * 2);
+        for (Map.Entry<String, Handler> entry : buttonKeys.entrySet()) {
+            String label = TelegramRemote.getMessage(entry.getKey());
+            if (label != null) {
+                compiled.put(label, entry.getValue());
+            }
+        }
+        buttons = compiled;
+    }
+
+    public boolean routeText(long chatId, ChatState state, String text) {
+        Handler handler = null;
+        if (text.startsWith("/")) {
+            int end = text.indexOf(' ');
+            handler = commands.get((end < 0 ? text : text.substring(0, end)).toLowerCase(Locale.ROOT));
+        }
+        if (handler == null) {
+            handler = buttons.get(text);
+        }
+        if (handler == null) {
+            handler = stateText.get(state);
+        }
+        return dispatch(handler, chatId, text);
+    }
+
+    public boolean routeCallback(long chatId, ChatState state, String data) {
+        if (data == null) {
+            return false;
+        }
+        Handler handler = anyStateCallbacks.get(data);
+        if (handler == null) {
+            Map<String, Handler> callbacks = stateCallbacks.get(state);
+            if (callbacks != null) {
+                handler = callbacks.get(data);
+            }
+        }
+        return dispatch(handler, chatId, data);
+    }
+
+    private static boolean dispatch(Handler handler, long chatId, String text) {
+        if (handler == null) {
+            return false;
+        }
+        handler.handle(chatId, text);
+        return true;
+    }
+}
@@ -0,0 +1,137 @@
+package me.drazz.telegramremote.bot;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bukkit.configuration.ConfigurationSection;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.bukkit.Bukkit.getLogger;
+
+/**
+ * Receives updates pushed by Telegram on a small embedded HTTP server and hands them to
+ * {@link Main_BOT#onUpdateReceived}, as an alternative to long polling.
+ * Requests without the configured secret token are rejected.
+ */
+public class WebhookServer {
+
+    private static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private final Main_BOT bot;
+    private final String url;
+    private final String host;
+    private final int port;
+    private final String path;
+    private final byte[] secretToken;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public WebhookServer(Main_BOT bot, ConfigurationSection config) {
+        this.bot = bot;
+        this.url = config.getString("url");
+        this.host = config.getString("bind_host", "127.0.0.1");
+        this.port = config.getInt("port", 8443);
+        this.path = config.getString("path", "/telegram");
+        this.secretToken = config.getString("secret_token", "").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void start() throws IOException, TelegramApiException {
+        if (secretToken.length == 0) {
+            throw new IllegalStateException("telegram.webhook.secret_token must be set");
+        }
+
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "TelegramRemote-Webhook");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext(path, this::handle);
+        server.setExecutor(executor);
+        server.start();
+
+        if (url != null && !url.isEmpty()) {
+            SetWebhook setWebhook = new SetWebhook();
+            setWebhook.setUrl(url);
+            setWebhook.setSecretToken(new String(secretToken, StandardCharsets.UTF_8));
+            bot.execute(setWebhook);
+        }
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            String token = exchange.getRequestHeaders().getFirst(SECRET_HEADER);
+            if (token == null || !MessageDigest.isEqual(secretToken, token.getBytes(StandardCharsets.UTF_8))) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                exchange.sendResponseHeaders(413, -1);
+                return;
+            }
+
+            Update update;
+            try {
+                update = mapper.readValue(body, Update.class);
+            } catch (IOException e) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            // Answer first so Telegram does not retry while the update is being handled.
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            try {
+                bot.onUpdateReceived(update);
+            } catch (RuntimeException e) {
+                getLogger().warning("Unable to handle webhook update: " + e.getMessage());
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (out.size() + read > MAX_BODY_BYTES) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
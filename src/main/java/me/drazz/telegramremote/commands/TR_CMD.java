@@ -15,11 +15,17 @@
 package me.drazz.telegramremote.commands;
 
 import me.drazz.telegramremote.TelegramRemote;
+import me.drazz.telegramremote.bot.ChatCircuitBreaker;
+import me.drazz.telegramremote.bot.Main_BOT;
 import me.drazz.telegramremote.events.Notifications_Event;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 
 public class TR_CMD implements CommandExecutor {
     //Main_BOT telegramBot = new Main_BOT();
@@ -37,12 +43,53 @@ public class TR_CMD implements CommandExecutor {
                 TelegramRemote.getInstance().reloadConfig();
                 TelegramRemote.getInstance().loadMessagesConfig();
                 TelegramRemote.getInstance().reloadLogHandler(); // Neuladen des LogHandlers
+                TelegramRemote.getInstance().getRconPool().loadConfig();
                 Notifications_Event.getInstance().loadConfig();
+                if (TelegramRemote.getInstance().getPerfSampler() != null) {
+                    TelegramRemote.getInstance().getPerfSampler().loadConfig();
+                }
+                if (TelegramRemote.getInstance().getWatchdog() != null) {
+                    TelegramRemote.getInstance().getWatchdog().loadConfig();
+                }
+                if (TelegramRemote.getInstance().getProfiler() != null) {
+                    TelegramRemote.getInstance().getProfiler().loadConfig();
+                }
                 sender.sendMessage(TelegramRemote.getMessage("messages.reload_successful"));
             }
             else {
                 sender.sendMessage(TelegramRemote.getMessage("messages.noPermission"));
             }
+        else if (args[0].equalsIgnoreCase("suspended")) {
+            if (sender.hasPermission("telegramremote.suspended")) {
+                Main_BOT telegramBot = TelegramRemote.getInstance().getTelegramBot();
+                List<ChatCircuitBreaker.Suspension> suspended = telegramBot != null
+                        ? telegramBot.getBroadcaster().getSuspended() : Collections.emptyList();
+                if (suspended.isEmpty()) {
+                    sender.sendMessage(TelegramRemote.getMessage("messages.suspended_none"));
+                }
+                else {
+                    sender.sendMessage(TelegramRemote.getMessage("messages.suspended_header"));
+                    for (ChatCircuitBreaker.Suspension suspension : suspended) {
+                        sender.sendMessage("§7" + suspension.getChatId() + " §b" + suspension.getFailures() + " × §7"
+                                + TimeUnit.MILLISECONDS.toMinutes(suspension.getRemainingMillis()) + " min §8" + suspension.getLastError());
+                    }
+                }
+            }
+            else {
+                sender.sendMessage(TelegramRemote.getMessage("messages.noPermission"));
+            }
+        }
+        else if (args[0].equalsIgnoreCase("stats")) {
+            if (sender.hasPermission("telegramremote.stats")) {
+                sender.sendMessage(TelegramRemote.getMessage("messages.stats_header"));
+                for (String line : TelegramRemote.getInstance().getMetrics().renderText().split("\n")) {
+                    sender.sendMessage("§7" + line);
+                }
+            }
+            else {
+                sender.sendMessage(TelegramRemote.getMessage("messages.noPermission"));
+            }
+        }
         else if (args[0].equalsIgnoreCase("help")) {
             if (sender.hasPermission("telegramremote.help")) {
                 sender.sendMessage(TelegramRemote.getMessage("messages.help"));
@@ -27,6 +27,8 @@ public class TR_TabCompleter implements TabCompleter {
             List<String> tab = new ArrayList<>();
             tab.add("help");
             tab.add("reload");
+            tab.add("suspended");
+            tab.add("stats");
             return tab;
         }
         return null;
@@ -0,0 +1,11 @@
+package me.drazz.telegramremote.console;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface CommandRunner {
+
+    CompletableFuture<String> run(String command);
+
+    default void shutdown() {
+    }
+}
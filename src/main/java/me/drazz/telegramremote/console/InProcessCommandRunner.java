@@ -0,0 +1,89 @@
+package me.drazz.telegramremote.console;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChatColor;
+import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Dispatches commands on the server thread through the Bukkit scheduler.
+ * The sender is a proxy of the real console that collects every message sent back to it.
+ * Feedback of vanilla commands is routed by the server to its own console listener and is
+ * therefore not captured.
+ */
+public class InProcessCommandRunner implements CommandRunner {
+
+    // Commands that print without end (or a plugin spamming the sender) must not fill the heap.
+    private static final int MAX_OUTPUT_CHARS = 1024 * 1024;
+
+    private final Plugin plugin;
+
+    public InProcessCommandRunner(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public CompletableFuture<String> run(String command) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            StringBuilder output = new StringBuilder();
+            try {
+                Bukkit.dispatchCommand(capturingSender(output), command);
+                future.complete(output.toString());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static ConsoleCommandSender capturingSender(StringBuilder output) {
+        ConsoleCommandSender console = Bukkit.getConsoleSender();
+        return (ConsoleCommandSender) Proxy.newProxyInstance(
+                ConsoleCommandSender.class.getClassLoader(),
+                new Class<?>[]{ConsoleCommandSender.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if ((name.equals("sendMessage") || name.equals("sendRawMessage")) && args != null) {
+                        Object message = args[args.length - 1];
+                        if (message instanceof String) {
+                            append(output, (String) message);
+                        } else if (message instanceof String[]) {
+                            for (String line : (String[]) message) {
+                                append(output, line);
+                            }
+                        }
+                        return null;
+                    }
+                    if (name.equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    if (name.equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    try {
+                        return method.invoke(console, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static void append(StringBuilder output, String line) {
+        if (line == null || output.length() >= MAX_OUTPUT_CHARS) {
+            return;
+        }
+        if (output.length() > 0) {
+            output.append('\n');
+        }
+        String text = ChatColor.stripColor(line);
+        if (output.length() + text.length() > MAX_OUTPUT_CHARS) {
+            text = text.substring(0, MAX_OUTPUT_CHARS - output.length());
+        }
+        output.append(text);
+    }
+}
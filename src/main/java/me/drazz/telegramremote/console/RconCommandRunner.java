@@ -0,0 +1,69 @@
+package me.drazz.telegramremote.console;
+
+import me.drazz.telegramremote.metrics.Metrics;
+import me.drazz.telegramremote.rcon.RconSessionPool;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends commands over RCON, for setups where the console should go through the network
+ * interface of the server instead of the plugin's own thread access.
+ */
+public class RconCommandRunner implements CommandRunner {
+
+    private static final int MAX_QUEUED = 64;
+
+    private final RconSessionPool pool;
+    private final Metrics metrics;
+    private final ExecutorService executor;
+
+    public RconCommandRunner(RconSessionPool pool, Metrics metrics) {
+        this.pool = pool;
+        this.metrics = metrics;
+        // One thread per pooled connection; more would only wait for a connection.
+        this.executor = new ThreadPoolExecutor(pool.getMaxConnections(), pool.getMaxConnections(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED), r -> {
+            Thread thread = new Thread(r, "TelegramRemote-RCON-Command");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> run(String command) {
+        try {
+            return submit(command);
+        } catch (RejectedExecutionException e) {
+            metrics.rconErrors.increment();
+            CompletableFuture<String> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new RejectedExecutionException("Too many RCON commands waiting"));
+            return rejected;
+        }
+    }
+
+    private CompletableFuture<String> submit(String command) {
+        return CompletableFuture.supplyAsync(() -> {
+            metrics.rconCommands.increment();
+            long start = System.nanoTime();
+            try {
+                return pool.sendCommand(command);
+            } catch (RuntimeException e) {
+                metrics.rconErrors.increment();
+                throw e;
+            } finally {
+                metrics.rconLatency.recordSince(start);
+            }
+        }, executor);
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdownNow();
+        pool.shutdown();
+    }
+}
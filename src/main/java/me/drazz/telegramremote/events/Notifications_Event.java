@@ -21,14 +21,10 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
 
-import java.util.List;
-
 import static org.bukkit.Bukkit.getLogger;
 
 public class Notifications_Event implements Listener {
     private static Notifications_Event instance;
-    Main_BOT telegramBot = new Main_BOT();
-    private List<Long> adminChatIds;
     String enable;
 
     public Notifications_Event() {
@@ -38,7 +34,6 @@ public class Notifications_Event implements Listener {
 
     public void loadConfig() {
         FileConfiguration config = TelegramRemote.getInstance().getConfig();
-        adminChatIds = config.getLongList("telegram.admin_ids");
         enable = config.getString("telegram.notifications.enable_op");
     }
 
@@ -48,9 +43,9 @@ public class Notifications_Event implements Listener {
             Player player = event.getPlayer();
             if (player.isOp()) {
                 getLogger().info(TelegramRemote.getMessage("messages.telegram.op_text") + player.getName());
-                for (Long adminChatId : adminChatIds) {
-                    telegramBot.sendMsg(adminChatId, TelegramRemote.getMessage("messages.telegram.op_text") + player.getName());
-                }
+                Main_BOT telegramBot = TelegramRemote.getInstance().getTelegramBot();
+                String text = TelegramRemote.getMessage("messages.telegram.op_text") + player.getName();
+                telegramBot.getBroadcaster().broadcast(TelegramRemote.getInstance().getAdmins().get(), text);
             }
         }
     }
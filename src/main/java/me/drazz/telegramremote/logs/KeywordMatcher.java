@@ -0,0 +1,154 @@
+package me.drazz.telegramremote.logs;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Case-insensitive Aho-Corasick automaton. Tells in a single pass over the text whether it contains
+ * any of the keywords, without allocating. Keywords can carry a bit mask, in which case
+ * {@link #matchMask} returns the union of the masks of every keyword found.
+ */
+public final class KeywordMatcher {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    private final long[] output;
+
+    public KeywordMatcher(Collection<String> keywords) {
+        this(new ArrayList<>(keywords), null);
+    }
+
+    public KeywordMatcher(List<String> keywords, long[] masks) {
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Long> ends = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        ends.add(0L);
+
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            if (keyword == null || keyword.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = Character.toLowerCase(keyword.charAt(i));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    ends.add(0L);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            ends.set(state, ends.get(state) | (masks != null ? masks[k] : 1L));
+        }
+
+        int size = trie.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        fail = new int[size];
+        output = new long[size];
+
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> edges = trie.get(state);
+            output[state] = ends.get(state);
+            if (edges.isEmpty()) {
+                keys[state] = NO_KEYS;
+                targets[state] = NO_TARGETS;
+                continue;
+            }
+            keys[state] = new char[edges.size()];
+            targets[state] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                keys[state][i] = edge.getKey();
+                targets[state][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            fail[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                char c = keys[state][i];
+                int child = targets[state][i];
+                int f = fail[state];
+                int next = step(f, c);
+                while (next < 0 && f != 0) {
+                    f = fail[f];
+                    next = step(f, c);
+                }
+                fail[child] = next < 0 ? 0 : next;
+                output[child] |= output[fail[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return keys[0].length == 0;
+    }
+
+    public boolean matches(CharSequence text) {
+        return scan(text, true) != 0;
+    }
+
+    public long matchMask(CharSequence text) {
+        return scan(text, false);
+    }
+
+    private long scan(CharSequence text, boolean stopAtFirst) {
+        if (text == null || isEmpty()) {
+            return 0;
+        }
+        long found = 0;
+        int state = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next = step(state, c);
+            while (next < 0 && state != 0) {
+                state = fail[state];
+                next = step(state, c);
+            }
+            state = next < 0 ? 0 : next;
+            found |= output[state];
+            if (stopAtFirst && found != 0) {
+                return found;
+            }
+        }
+        return found;
+    }
+
+    private int step(int state, char c) {
+        char[] stateKeys = keys[state];
+        int low = 0;
+        int high = stateKeys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char key = stateKeys[mid];
+            if (key < c) {
+                low = mid + 1;
+            } else if (key > c) {
+                high = mid - 1;
+            } else {
+                return targets[state][mid];
+            }
+        }
+        return -1;
+    }
+}
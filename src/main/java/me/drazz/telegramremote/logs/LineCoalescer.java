@@ -0,0 +1,126 @@
+package me.drazz.telegramremote.logs;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collapses repeated log lines. The first line of a kind is passed on immediately; further lines with
+ * the same fingerprint (digits ignored) inside the window are only counted and reported once as
+ * {@code line (xN)} when the window closes. Fingerprints live in a bounded LRU, so memory stays
+ * constant under a flood. Each line carries the bit mask of its recipients; lines only collapse
+ * with lines going to the same recipients. Single-threaded.
+ */
+public final class LineCoalescer {
+
+    @FunctionalInterface
+    public interface Sink {
+        void accept(String line, long recipients);
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long windowMillis;
+    private final Sink sink;
+    private final LinkedHashMap<Long, Window> recent;
+
+    public LineCoalescer(int capacity, long windowMillis, Sink sink) {
+        this.windowMillis = windowMillis;
+        this.sink = sink;
+        this.recent = new LinkedHashMap<Long, Window>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Window> eldest) {
+                if (size() > capacity) {
+                    emitSummary(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public void accept(String line, long recipients, long now) {
+        if (windowMillis <= 0) {
+            sink.accept(line, recipients);
+            return;
+        }
+
+        long fingerprint = fingerprint(line) ^ (recipients * 0x9E3779B97F4A7C15L);
+        Window window = recent.get(fingerprint);
+        if (window != null && now - window.start < windowMillis) {
+            window.suppressed++;
+            window.lastLine = line;
+            return;
+        }
+
+        if (window != null) {
+            emitSummary(window);
+            window.start = now;
+            window.lastLine = line;
+        } else {
+            recent.put(fingerprint, new Window(line, recipients, now));
+        }
+        sink.accept(line, recipients);
+    }
+
+    public void flushExpired(long now) {
+        Iterator<Window> iterator = recent.values().iterator();
+        while (iterator.hasNext()) {
+            Window window = iterator.next();
+            if (now - window.start >= windowMillis) {
+                emitSummary(window);
+                iterator.remove();
+            }
+        }
+    }
+
+    // Reports every pending count now, e.g. before the coalescer is replaced.
+    public void flushAll() {
+        for (Window window : recent.values()) {
+            emitSummary(window);
+        }
+        recent.clear();
+    }
+
+    private void emitSummary(Window window) {
+        if (window.suppressed > 0) {
+            sink.accept(window.lastLine + " (x" + window.suppressed + ")", window.recipients);
+            window.suppressed = 0;
+        }
+    }
+
+    // Hashes the line with every run of digits folded to one marker, so "took 12ms" and "took 345ms" collide on purpose.
+    static long fingerprint(String line) {
+        long hash = FNV_OFFSET;
+        boolean inDigits = false;
+        for (int i = 0, length = line.length(); i < length; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (inDigits) {
+                    continue;
+                }
+                inDigits = true;
+                c = '#';
+            } else {
+                inDigits = false;
+            }
+            hash ^= c;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static final class Window {
+        private final long recipients;
+        private String lastLine;
+        private long start;
+        private int suppressed;
+
+        private Window(String line, long recipients, long start) {
+            this.recipients = recipients;
+            this.lastLine = line;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package me.drazz.telegramremote.logs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * Compiled set of active subscriptions. {@link #recipients} answers, for one record, which
+ * subscribers want it as a bit mask: levels and logger prefixes are compared per subscriber,
+ * while the keywords of all subscribers share one automaton, so the message text is scanned once.
+ */
+public final class LogFanout {
+
+    public static final int MAX_SUBSCRIBERS = 64;
+    public static final LogFanout EMPTY = new LogFanout(new ArrayList<>());
+
+    private final LogSubscription[] subscribers;
+    private final KeywordMatcher keywords;
+    private final long keywordFree;
+    private final long importantOnly;
+
+    public LogFanout(List<LogSubscription> subscriptions) {
+        int count = Math.min(subscriptions.size(), MAX_SUBSCRIBERS);
+        this.subscribers = subscriptions.subList(0, count).toArray(new LogSubscription[0]);
+
+        List<String> words = new ArrayList<>();
+        List<Long> masks = new ArrayList<>();
+        long free = 0;
+        long important = 0;
+        for (int i = 0; i < count; i++) {
+            long bit = 1L << i;
+            LogSubscription subscription = subscribers[i];
+            if (subscription.getKeywords().isEmpty()) {
+                free |= bit;
+            }
+            for (String word : subscription.getKeywords()) {
+                words.add(word);
+                masks.add(bit);
+            }
+            if (subscription.isImportantOnly()) {
+                important |= bit;
+            }
+        }
+
+        long[] wordMasks = new long[masks.size()];
+        for (int i = 0; i < wordMasks.length; i++) {
+            wordMasks[i] = masks.get(i);
+        }
+        this.keywords = new KeywordMatcher(words, wordMasks);
+        this.keywordFree = free;
+        this.importantOnly = important;
+    }
+
+    public long recipients(Level level, String loggerName, String message, LogFilter importantFilter) {
+        long candidates = 0;
+        for (int i = 0; i < subscribers.length; i++) {
+            if (subscribers[i].accepts(level, loggerName)) {
+                candidates |= 1L << i;
+            }
+        }
+        if (candidates == 0) {
+            return 0;
+        }
+
+        long recipients = candidates & keywordFree;
+        if ((candidates & ~keywordFree) != 0) {
+            recipients |= candidates & keywords.matchMask(message);
+        }
+        if ((recipients & importantOnly) != 0 && !importantFilter.isImportant(loggerName, message)) {
+            recipients &= ~importantOnly;
+        }
+        return recipients;
+    }
+
+    public boolean isEmpty() {
+        return subscribers.length == 0;
+    }
+
+    public int size() {
+        return subscribers.length;
+    }
+
+    public long chatId(int index) {
+        return subscribers[index].getChatId();
+    }
+}
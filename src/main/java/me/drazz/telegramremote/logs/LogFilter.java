@@ -0,0 +1,83 @@
+package me.drazz.telegramremote.logs;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Decides which log records count as important. Built from the config and used only by the log
+ * handler's consumer thread, so it reuses one matcher per pattern; keywords, regex rules and
+ * logger-name prefixes are all optional.
+ */
+public final class LogFilter {
+
+    public static final List<String> DEFAULT_KEYWORDS = Arrays.asList(
+            "logged in", "joined", "left the game", "said", "chat", "message");
+
+    private final KeywordMatcher keywords;
+    private final Pattern[] patterns;
+    private final String[] loggerPrefixes;
+    private final Matcher[] matchers;
+
+    public LogFilter(List<String> keywords, List<Pattern> patterns, List<String> loggerPrefixes) {
+        this.keywords = new KeywordMatcher(keywords);
+        this.patterns = patterns.toArray(new Pattern[0]);
+        this.loggerPrefixes = loggerPrefixes.toArray(new String[0]);
+        this.matchers = new Matcher[this.patterns.length];
+    }
+
+    public static LogFilter fromConfig(ConfigurationSection section, Logger logger) {
+        if (section == null) {
+            return new LogFilter(DEFAULT_KEYWORDS, new ArrayList<>(), new ArrayList<>());
+        }
+        List<String> keywords = section.isList("keywords") ? section.getStringList("keywords") : DEFAULT_KEYWORDS;
+
+        List<Pattern> compiled = new ArrayList<>();
+        for (String regex : section.getStringList("patterns")) {
+            try {
+                compiled.add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
+            } catch (PatternSyntaxException e) {
+                logger.warning("Invalid log filter pattern '" + regex + "': " + e.getDescription());
+            }
+        }
+        return new LogFilter(keywords, compiled, section.getStringList("loggers"));
+    }
+
+    public boolean isImportant(String loggerName, String message) {
+        if (loggerName != null) {
+            for (String prefix : loggerPrefixes) {
+                if (loggerName.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        if (message == null) {
+            return false;
+        }
+        if (keywords.matches(message)) {
+            return true;
+        }
+        if (patterns.length == 0) {
+            return false;
+        }
+        for (int i = 0; i < patterns.length; i++) {
+            Matcher matcher = matchers[i];
+            if (matcher == null) {
+                matcher = patterns[i].matcher(message);
+                matchers[i] = matcher;
+            } else {
+                matcher.reset(message);
+            }
+            if (matcher.find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
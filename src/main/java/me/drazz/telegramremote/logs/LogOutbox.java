@@ -0,0 +1,120 @@
+package me.drazz.telegramremote.logs;
+
+import java.util.ArrayDeque;
+
+/**
+ * Pending log lines of one subscriber. Bounded, so a slow or blocked chat only loses its own oldest
+ * (or newest) lines. The queue is only touched by the thread that drains the log ring; only the
+ * in-flight flag is written by delivery callbacks.
+ */
+public final class LogOutbox {
+
+    private final long chatId;
+    private final ArrayDeque<String> queue = new ArrayDeque<>();
+    private int queuedChars;
+    private long dropped;
+    private String carryOver;
+    private long pendingSince;
+    private volatile boolean inFlight;
+
+    public LogOutbox(long chatId) {
+        this.chatId = chatId;
+    }
+
+    // Returns how many lines were dropped to stay within capacity.
+    public int enqueue(String line, int capacity, boolean dropNewest) {
+        int droppedNow = 0;
+        while (queue.size() >= capacity) {
+            droppedNow++;
+            if (dropNewest) {
+                dropped++;
+                return droppedNow;
+            }
+            queuedChars -= queue.poll().length();
+            dropped++;
+        }
+        queue.add(line);
+        queuedChars += line.length();
+        return droppedNow;
+    }
+
+    // Next line to send, starting with the one a previous batch had no room for.
+    public String poll() {
+        String line = carryOver;
+        if (line != null) {
+            carryOver = null;
+            return line;
+        }
+        line = queue.poll();
+        if (line != null) {
+            queuedChars -= line.length();
+        }
+        return line;
+    }
+
+    // Packs the dropped-lines notice and as many whole lines as fit into one message of up to limit chars.
+    public String nextBatch(int limit, String droppedNotice) {
+        StringBuilder batch = new StringBuilder(Math.min(limit, pendingChars() + 64));
+
+        if (dropped > 0) {
+            batch.append(droppedNotice).append(dropped).append('\n');
+            dropped = 0;
+        }
+
+        String line;
+        while ((line = poll()) != null) {
+            if (batch.length() + line.length() + 1 > limit) {
+                carryOver = line;
+                break;
+            }
+            batch.append(line).append('\n');
+        }
+        return batch.toString();
+    }
+
+    public boolean isFull(int limit) {
+        return pendingChars() >= limit;
+    }
+
+    public boolean isEmpty() {
+        return queue.isEmpty() && carryOver == null && dropped == 0;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public long takeDropped() {
+        long count = dropped;
+        dropped = 0;
+        return count;
+    }
+
+    public void addDropped(long count) {
+        dropped += count;
+    }
+
+    public long getChatId() {
+        return chatId;
+    }
+
+    public long getPendingSince() {
+        return pendingSince;
+    }
+
+    public void setPendingSince(long pendingSince) {
+        this.pendingSince = pendingSince;
+    }
+
+    public boolean isInFlight() {
+        return inFlight;
+    }
+
+    public void setInFlight(boolean inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    private int pendingChars() {
+        return queuedChars + (carryOver != null ? carryOver.length() : 0);
+    }
+}
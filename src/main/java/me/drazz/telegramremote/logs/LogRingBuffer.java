@@ -0,0 +1,97 @@
+package me.drazz.telegramremote.logs;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+
+/**
+ * Preallocated multi-producer, single-consumer ring of log record fields.
+ * Producers claim a slot with a CAS on the cursor and publish it by writing the slot's sequence;
+ * when the ring is full the record is dropped instead of blocking the logging thread.
+ */
+public final class LogRingBuffer {
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(Level level, String loggerName, String message, long millis);
+    }
+
+    private final int mask;
+    private final Level[] levels;
+    private final String[] loggerNames;
+    private final String[] messages;
+    private final long[] millis;
+    private final AtomicLongArray published;
+    private final AtomicLong claimCursor = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    public LogRingBuffer(int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.levels = new Level[size];
+        this.loggerNames = new String[size];
+        this.messages = new String[size];
+        this.millis = new long[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public boolean offer(Level level, String loggerName, String message, long timeMillis) {
+        long sequence;
+        do {
+            sequence = claimCursor.get();
+            if (sequence - consumed.get() > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimCursor.compareAndSet(sequence, sequence + 1));
+
+        int index = (int) (sequence & mask);
+        levels[index] = level;
+        loggerNames[index] = loggerName;
+        messages[index] = message;
+        millis[index] = timeMillis;
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    /**
+     * Hands up to {@code max} published entries to the consumer, in order. Only one thread may drain.
+     */
+    public int drain(EntryConsumer consumer, int max) {
+        long next = consumed.get();
+        int count = 0;
+        while (count < max) {
+            int index = (int) (next & mask);
+            if (published.get(index) != next) {
+                break;
+            }
+            Level level = levels[index];
+            String loggerName = loggerNames[index];
+            String message = messages[index];
+            long time = millis[index];
+            levels[index] = null;
+            loggerNames[index] = null;
+            messages[index] = null;
+            next++;
+            consumed.lazySet(next);
+            count++;
+            consumer.accept(level, loggerName, message, time);
+        }
+        return count;
+    }
+
+    public long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+
+    public int size() {
+        return (int) (claimCursor.get() - consumed.get());
+    }
+}
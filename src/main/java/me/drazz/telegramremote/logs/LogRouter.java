@@ -0,0 +1,106 @@
+package me.drazz.telegramremote.logs;
+
+import me.drazz.telegramremote.metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * The handler-thread step between the ring buffer and the chat outboxes: skips the plugin's own
+ * lines, works out the recipients of a record, formats it, passes it through the coalescer and
+ * queues it in the outbox of every recipient. Recipient masks are indexes into the fan-out, so a
+ * router lives as long as its fan-out. Single-threaded.
+ */
+public final class LogRouter implements LogRingBuffer.EntryConsumer {
+
+    // Records of this logger reach the console but are never forwarded, e.g. warnings admins already got as a report.
+    public static final String CONSOLE_ONLY_LOGGER = "me.drazz.telegramremote.ConsoleOnly";
+
+    private static final KeywordMatcher INTERNAL_MARKERS = new KeywordMatcher(Arrays.asList(
+            "Message not delivered", "Chat suspended", "TG-Console", "Unable to execute", "TelegramLogHandler"));
+
+    private final LogFanout fanout;
+    private final LogOutbox[] outboxes;
+    private final LineCoalescer coalescer;
+    private final int lineLimit;
+    private final Metrics metrics;
+    private final StringBuilder lineBuilder = new StringBuilder();
+
+    private LogFilter filter;
+    private int capacity = 1;
+    private boolean dropNewest;
+
+    public LogRouter(LogFanout fanout, LogOutbox[] outboxes, int coalesceFingerprints, long coalesceMillis, int lineLimit, Metrics metrics) {
+        this.fanout = fanout;
+        this.outboxes = outboxes;
+        this.coalescer = new LineCoalescer(coalesceFingerprints, coalesceMillis, this::deliver);
+        this.lineLimit = lineLimit;
+        this.metrics = metrics;
+    }
+
+    // Settings that may change on reload without a new fan-out; read once per pass.
+    public void configure(LogFilter filter, int capacity, boolean dropNewest) {
+        this.filter = filter;
+        this.capacity = capacity;
+        this.dropNewest = dropNewest;
+    }
+
+    @Override
+    public void accept(Level level, String loggerName, String message, long millis) {
+        if (isInternal(loggerName, message)) {
+            return;
+        }
+
+        long recipients = fanout.recipients(level, loggerName, message, filter);
+        if (recipients == 0) {
+            return;
+        }
+
+        lineBuilder.setLength(0);
+        lineBuilder.append('[').append(level != null ? level.getName() : "").append("] ").append(message);
+        coalescer.accept(lineBuilder.toString(), recipients, millis);
+    }
+
+    public void flushExpired(long now) {
+        coalescer.flushExpired(now);
+    }
+
+    // Before the router is replaced: pending "(xN)" counts still go to these outboxes.
+    public void flushAll() {
+        coalescer.flushAll();
+    }
+
+    public LogFanout getFanout() {
+        return fanout;
+    }
+
+    public LogOutbox[] getOutboxes() {
+        return outboxes;
+    }
+
+    private void deliver(String line, long recipients) {
+        if (line.length() > lineLimit) {
+            line = line.substring(0, lineLimit);
+        }
+
+        for (long remaining = recipients; remaining != 0; remaining &= remaining - 1) {
+            int index = Long.numberOfTrailingZeros(remaining);
+            if (index < outboxes.length) {
+                metrics.logsQueued.increment();
+                metrics.logsDroppedOutbox.add(outboxes[index].enqueue(line, capacity, dropNewest));
+            }
+        }
+    }
+
+    private static boolean isInternal(String loggerName, String message) {
+        if (INTERNAL_MARKERS.matches(message)) {
+            return true;
+        }
+
+        return loggerName != null && (
+                loggerName.equals(CONSOLE_ONLY_LOGGER) ||
+                loggerName.equals("org.telegram.telegrambots") ||
+                loggerName.contains("telegrambots") ||
+                loggerName.contains("TelegramLongPollingBot"));
+    }
+}
@@ -0,0 +1,107 @@
+package me.drazz.telegramremote.logs;
+
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * What one chat wants from the live log stream: a minimum level, an optional logger-name prefix,
+ * optional keywords, whether only records passing the global important-log filter count, and
+ * whether the stream is paused. Immutable; changes produce a copy.
+ */
+public final class LogSubscription {
+
+    private final long chatId;
+    private final Level minLevel;
+    private final String loggerPrefix;
+    private final List<String> keywords;
+    private final boolean importantOnly;
+    private final boolean paused;
+
+    public LogSubscription(long chatId, Level minLevel, String loggerPrefix, List<String> keywords, boolean importantOnly, boolean paused) {
+        this.chatId = chatId;
+        this.minLevel = minLevel;
+        this.loggerPrefix = loggerPrefix == null ? "" : loggerPrefix;
+        this.keywords = Collections.unmodifiableList(new ArrayList<>(keywords));
+        this.importantOnly = importantOnly;
+        this.paused = paused;
+    }
+
+    public static LogSubscription fromConfig(long chatId, ConfigurationSection section) {
+        Level level;
+        try {
+            level = Level.parse(section.getString("level", "ALL"));
+        } catch (IllegalArgumentException e) {
+            level = Level.ALL;
+        }
+        return new LogSubscription(chatId, level, section.getString("logger", ""), section.getStringList("keywords"),
+                section.getBoolean("important_only", false), section.getBoolean("paused", false));
+    }
+
+    public void save(Map<String, Object> values, String path) {
+        values.put(path + ".level", minLevel.getName());
+        values.put(path + ".logger", loggerPrefix);
+        values.put(path + ".keywords", new ArrayList<>(keywords));
+        values.put(path + ".important_only", importantOnly);
+        values.put(path + ".paused", paused);
+    }
+
+    public boolean isActive() {
+        return !paused && minLevel != Level.OFF;
+    }
+
+    public boolean accepts(Level level, String loggerName) {
+        if (level == null || level.intValue() < minLevel.intValue()) {
+            return false;
+        }
+        return loggerPrefix.isEmpty() || (loggerName != null && loggerName.startsWith(loggerPrefix));
+    }
+
+    public LogSubscription withLevel(Level level) {
+        return new LogSubscription(chatId, level, loggerPrefix, keywords, importantOnly, paused);
+    }
+
+    public LogSubscription withLoggerPrefix(String prefix) {
+        return new LogSubscription(chatId, minLevel, prefix, keywords, importantOnly, paused);
+    }
+
+    public LogSubscription withKeywords(List<String> words) {
+        return new LogSubscription(chatId, minLevel, loggerPrefix, words, importantOnly, paused);
+    }
+
+    public LogSubscription withImportantOnly(boolean important) {
+        return new LogSubscription(chatId, minLevel, loggerPrefix, keywords, important, paused);
+    }
+
+    public LogSubscription withPaused(boolean pause) {
+        return new LogSubscription(chatId, minLevel, loggerPrefix, keywords, importantOnly, pause);
+    }
+
+    public long getChatId() {
+        return chatId;
+    }
+
+    public Level getMinLevel() {
+        return minLevel;
+    }
+
+    public String getLoggerPrefix() {
+        return loggerPrefix;
+    }
+
+    public List<String> getKeywords() {
+        return keywords;
+    }
+
+    public boolean isImportantOnly() {
+        return importantOnly;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+}
@@ -0,0 +1,142 @@
+package me.drazz.telegramremote.metrics;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * The plugin's runtime metrics. Counters and histograms are created once here and updated
+ * lock-free from wherever the work happens; gauges are read on demand. The same values are
+ * rendered as a short text for /stats and in the Prometheus text format.
+ */
+public final class Metrics {
+
+    private static final String PREFIX = "telegramremote_";
+
+    private final List<Counter> counters = new CopyOnWriteArrayList<>();
+    private final List<LatencyHistogram> histograms = new CopyOnWriteArrayList<>();
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    public final Counter telegramRequests = counter("telegram_requests_total", "Telegram API calls attempted");
+    public final Counter telegramErrors = counter("telegram_errors_total", "Telegram API calls that finally failed");
+    public final Counter telegramRetries = counter("telegram_retries_total", "Telegram API calls retried after retry_after");
+    public final LatencyHistogram telegramLatency = histogram("telegram_request_seconds", "Telegram API call round trip");
+
+    public final Counter updatesReceived = counter("updates_received_total", "Updates received from Telegram");
+    public final Counter updatesDropped = counter("updates_dropped_total", "Updates dropped because their chat had too many pending");
+    public final LatencyHistogram updateHandling = histogram("update_handling_seconds", "Time spent handling one update");
+
+    public final Counter logsPublished = counter("logs_published_total", "Log records taken from server loggers");
+    public final Counter logsQueued = counter("logs_queued_total", "Log lines queued for a chat");
+    public final Counter logsDroppedRing = counter("logs_dropped_ring_total", "Log records dropped because the handler fell behind");
+    public final Counter logsDroppedOutbox = counter("logs_dropped_outbox_total", "Log lines dropped from a full chat queue");
+    public final Counter logBatchesSent = counter("log_batches_sent_total", "Log messages delivered");
+    public final Counter logDocumentsSent = counter("log_documents_sent_total", "Log backlog files delivered");
+
+    public final Counter tickStalls = counter("tick_stalls_total", "Server ticks that exceeded the watchdog threshold");
+    public final LatencyHistogram tickStallDuration = histogram("tick_stall_seconds", "Duration of stalled server ticks");
+
+    public final Counter rconCommands = counter("rcon_commands_total", "Commands sent over RCON");
+    public final Counter rconErrors = counter("rcon_errors_total", "RCON commands that failed");
+    public final LatencyHistogram rconLatency = histogram("rcon_command_seconds", "RCON command round trip");
+
+    public void gauge(String name, String help, LongSupplier value) {
+        gauges.removeIf(gauge -> gauge.name.equals(name));
+        gauges.add(new Gauge(name, help, value));
+    }
+
+    public String renderText() {
+        StringBuilder text = new StringBuilder();
+        for (Gauge gauge : gauges) {
+            text.append(gauge.name).append(": ").append(gauge.read()).append('\n');
+        }
+        for (Counter counter : counters) {
+            text.append(counter.getName()).append(": ").append(counter.get()).append('\n');
+        }
+        for (LatencyHistogram histogram : histograms) {
+            long count = histogram.getCount();
+            text.append(histogram.getName()).append(": ").append(count);
+            if (count > 0) {
+                text.append(", avg ").append(millis(histogram.getSumNanos() / count))
+                        .append(", p50 ").append(millis(histogram.percentileNanos(0.5)))
+                        .append(", p95 ").append(millis(histogram.percentileNanos(0.95)))
+                        .append(", p99 ").append(millis(histogram.percentileNanos(0.99)))
+                        .append(", max ").append(millis(histogram.getMaxNanos()));
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    public String renderPrometheus() {
+        StringBuilder text = new StringBuilder(4096);
+        for (Gauge gauge : gauges) {
+            header(text, gauge.name, gauge.help, "gauge");
+            text.append(PREFIX).append(gauge.name).append(' ').append(gauge.read()).append('\n');
+        }
+        for (Counter counter : counters) {
+            header(text, counter.getName(), counter.getHelp(), "counter");
+            text.append(PREFIX).append(counter.getName()).append(' ').append(counter.get()).append('\n');
+        }
+        for (LatencyHistogram histogram : histograms) {
+            String name = PREFIX + histogram.getName();
+            header(text, histogram.getName(), histogram.getHelp(), "histogram");
+            long[] buckets = histogram.bucketCounts();
+            long cumulative = 0;
+            for (int i = 0; i < LatencyHistogram.BOUNDS_SECONDS.length; i++) {
+                cumulative += buckets[i];
+                text.append(name).append("_bucket{le=\"").append(BigDecimal.valueOf(LatencyHistogram.BOUNDS_SECONDS[i]).toPlainString()).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            cumulative += buckets[buckets.length - 1];
+            text.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+            text.append(name).append("_sum ").append(histogram.getSumNanos() / 1e9).append('\n');
+            text.append(name).append("_count ").append(cumulative).append('\n');
+        }
+        return text.toString();
+    }
+
+    private Counter counter(String name, String help) {
+        Counter counter = new Counter(name, help);
+        counters.add(counter);
+        return counter;
+    }
+
+    private LatencyHistogram histogram(String name, String help) {
+        LatencyHistogram histogram = new LatencyHistogram(name, help);
+        histograms.add(histogram);
+        return histogram;
+    }
+
+    private static void header(StringBuilder text, String name, String help, String type) {
+        text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f ms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static final class Gauge {
+        private final String name;
+        private final String help;
+        private final LongSupplier value;
+
+        private Gauge(String name, String help, LongSupplier value) {
+            this.name = name;
+            this.help = help;
+            this.value = value;
+        }
+
+        private long read() {
+            try {
+                return value.getAsLong();
+            } catch (RuntimeException e) {
+                return 0;
+            }
+        }
+    }
+}
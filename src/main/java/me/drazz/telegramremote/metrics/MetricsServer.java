@@ -0,0 +1,74 @@
+package me.drazz.telegramremote.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link Metrics#renderPrometheus()} on a small embedded HTTP server for a Prometheus scraper.
+ * Binds to localhost by default; there is no authentication, so only expose it to trusted networks.
+ */
+public class MetricsServer {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Metrics metrics;
+    private final String host;
+    private final int port;
+    private final String path;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsServer(Metrics metrics, ConfigurationSection config) {
+        this.metrics = metrics;
+        this.host = config.getString("bind_host", "127.0.0.1");
+        this.port = config.getInt("port", 9464);
+        this.path = config.getString("path", "/metrics");
+    }
+
+    public void start() throws IOException {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "TelegramRemote-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext(path, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = metrics.renderPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package me.drazz.telegramremote.perf;
+
+import me.drazz.telegramremote.TelegramRemote;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Records how the server is doing into fixed-size sample rings. A task on the main thread stores the
+ * interval between two ticks on every tick and counts chunks, entities and players every few seconds;
+ * heap and GC are read once a second on a separate thread. Statistics over the 1, 5 and 15 minute
+ * windows are only computed when {@link #render()} is called, off the main thread.
+ */
+public class PerfSampler implements Runnable {
+
+    private static final long[] WINDOWS_MINUTES = {1, 5, 15};
+    private static final int TICKS_PER_SECOND = 20;
+    private static final int WINDOW_SECONDS = 15 * 60;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+    private static final long FAILURE_LOG_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final TelegramRemote plugin;
+    private final SampleRing tickIntervals = new SampleRing(WINDOW_SECONDS * TICKS_PER_SECOND + TICKS_PER_SECOND * 60);
+    private final SampleRing heapUsed = new SampleRing(WINDOW_SECONDS + 60);
+    private final SampleRing gcMillis = new SampleRing(WINDOW_SECONDS + 60);
+    private final SampleRing gcCount = new SampleRing(WINDOW_SECONDS + 60);
+    private final SampleRing chunks = new SampleRing(WINDOW_SECONDS + 60);
+    private final SampleRing entities = new SampleRing(WINDOW_SECONDS + 60);
+    private final SampleRing players = new SampleRing(WINDOW_SECONDS + 60);
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    // Main thread only.
+    private long lastTick;
+    private int ticksUntilWorldSample;
+
+    private volatile int worldSampleTicks = 5 * TICKS_PER_SECOND;
+    private BukkitTask task;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> digest;
+
+    // Scheduler thread only.
+    private long lastFailureLogged;
+    private int failuresNotLogged;
+
+    public PerfSampler(TelegramRemote plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "TelegramRemote-Perf");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::sampleMemory, 0, 1, TimeUnit.SECONDS);
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1, 1);
+        loadConfig();
+    }
+
+    public synchronized void loadConfig() {
+        FileConfiguration config = plugin.getConfig();
+        worldSampleTicks = Math.max(1, config.getInt("telegram.status.world_sample_seconds", 5)) * TICKS_PER_SECOND;
+
+        if (digest != null) {
+            digest.cancel(false);
+            digest = null;
+        }
+        long digestMinutes = config.getLong("telegram.status.digest_minutes", 0);
+        if (digestMinutes > 0 && scheduler != null) {
+            digest = scheduler.scheduleAtFixedRate(this::sendDigest, digestMinutes, digestMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Main thread, every tick: one clock read and two array stores, plus the world counts every few seconds.
+    @Override
+    public void run() {
+        long now = System.nanoTime();
+        if (lastTick != 0) {
+            tickIntervals.add(now, now - lastTick);
+        }
+        lastTick = now;
+
+        if (--ticksUntilWorldSample <= 0) {
+            ticksUntilWorldSample = worldSampleTicks;
+            int chunkCount = 0;
+            int entityCount = 0;
+            for (World world : Bukkit.getWorlds()) {
+                chunkCount += world.getLoadedChunks().length;
+                entityCount += world.getEntities().size();
+            }
+            chunks.add(now, chunkCount);
+            entities.add(now, entityCount);
+            players.add(now, Bukkit.getOnlinePlayers().size());
+        }
+    }
+
+    private void sampleMemory() {
+        long now = System.nanoTime();
+        heapUsed.add(now, memory.getHeapMemoryUsage().getUsed());
+        long time = 0;
+        long count = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            time += Math.max(0, collector.getCollectionTime());
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        gcMillis.add(now, time);
+        gcCount.add(now, count);
+    }
+
+    private void sendDigest() {
+        try {
+            plugin.getTelegramBot().getBroadcaster().broadcast(plugin.getAdmins().get(), render());
+        } catch (RuntimeException e) {
+            // Thrown out of here, it would cancel the digest for good.
+            logFailure(e);
+        }
+    }
+
+    private void logFailure(RuntimeException e) {
+        long now = System.currentTimeMillis();
+        if (lastFailureLogged != 0 && now - lastFailureLogged < FAILURE_LOG_INTERVAL_MILLIS) {
+            failuresNotLogged++;
+            return;
+        }
+        String skipped = failuresNotLogged > 0 ? " (" + failuresNotLogged + " more since the last report)" : "";
+        plugin.getLogger().log(Level.WARNING, "Status digest failed" + skipped, e);
+        lastFailureLogged = now;
+        failuresNotLogged = 0;
+    }
+
+    public String render() {
+        long now = System.nanoTime();
+        StringBuilder text = new StringBuilder(512);
+        text.append(TelegramRemote.getMessage("messages.telegram.status.header")).append('\n');
+
+        text.append(TelegramRemote.getMessage("messages.telegram.status.tps")).append(' ');
+        for (int i = 0; i < WINDOWS_MINUTES.length; i++) {
+            long[] intervals = tickIntervals.valuesSince(now - TimeUnit.MINUTES.toNanos(WINDOWS_MINUTES[i]));
+            long total = 0;
+            for (long interval : intervals) {
+                total += interval;
+            }
+            double tps = total == 0 ? 0 : Math.min(TICKS_PER_SECOND, intervals.length * 1e9 / total);
+            separator(text, i).append(String.format(Locale.ROOT, "%.2f", tps));
+        }
+        text.append('\n');
+
+        row(text, "messages.telegram.status.tick", tickIntervals, now, NANOS_PER_MILLI);
+        row(text, "messages.telegram.status.heap", heapUsed, now, BYTES_PER_MB);
+
+        text.append(TelegramRemote.getMessage("messages.telegram.status.gc")).append(' ');
+        for (int i = 0; i < WINDOWS_MINUTES.length; i++) {
+            long since = now - TimeUnit.MINUTES.toNanos(WINDOWS_MINUTES[i]);
+            separator(text, i).append(growth(gcCount.valuesSince(since))).append(" / ")
+                    .append(growth(gcMillis.valuesSince(since))).append(" ms");
+        }
+        text.append('\n');
+
+        row(text, "messages.telegram.status.chunks", chunks, now, 1);
+        row(text, "messages.telegram.status.entities", entities, now, 1);
+        row(text, "messages.telegram.status.players", players, now, 1);
+        return text.toString();
+    }
+
+    // "label min/avg/p95 · min/avg/p95 · min/avg/p95" for the three windows.
+    private static void row(StringBuilder text, String labelKey, SampleRing ring, long now, double unit) {
+        text.append(TelegramRemote.getMessage(labelKey)).append(' ');
+        for (int i = 0; i < WINDOWS_MINUTES.length; i++) {
+            long[] values = ring.valuesSince(now - TimeUnit.MINUTES.toNanos(WINDOWS_MINUTES[i]));
+            separator(text, i);
+            if (values.length == 0) {
+                text.append('-');
+                continue;
+            }
+            Arrays.sort(values);
+            long sum = 0;
+            for (long value : values) {
+                sum += value;
+            }
+            long p95 = values[Math.min(values.length - 1, (int) Math.ceil(values.length * 0.95) - 1)];
+            text.append(number(values[0] / unit)).append('/')
+                    .append(number(sum / (double) values.length / unit)).append('/')
+                    .append(number(p95 / unit));
+        }
+        text.append('\n');
+    }
+
+    private static StringBuilder separator(StringBuilder text, int window) {
+        return window == 0 ? text : text.append(" · ");
+    }
+
+    private static long growth(long[] cumulative) {
+        return cumulative.length < 2 ? 0 : cumulative[cumulative.length - 1] - cumulative[0];
+    }
+
+    private static String number(double value) {
+        return value >= 100 ? String.valueOf(Math.round(value)) : String.format(Locale.ROOT, "%.1f", value);
+    }
+}
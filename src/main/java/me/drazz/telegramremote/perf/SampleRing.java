@@ -0,0 +1,50 @@
+package me.drazz.telegramremote.perf;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring of (time, value) samples in two primitive arrays. Written by one thread without
+ * allocating; readers copy out the samples of a time window. A reader racing the writer can at most
+ * see one sample from the next lap, which does not matter for statistics over thousands of samples.
+ */
+public final class SampleRing {
+
+    private final long[] times;
+    private final long[] values;
+    private final int mask;
+    private volatile long written;
+
+    public SampleRing(int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.times = new long[size];
+        this.values = new long[size];
+        this.mask = size - 1;
+    }
+
+    // Single writer only.
+    public void add(long time, long value) {
+        long index = written;
+        int slot = (int) (index & mask);
+        times[slot] = time;
+        values[slot] = value;
+        written = index + 1;
+    }
+
+    // Values sampled at or after the given time, oldest first.
+    public long[] valuesSince(long since) {
+        long end = written;
+        long start = Math.max(0, end - values.length);
+        long[] result = new long[(int) (end - start)];
+        int count = 0;
+        for (long i = start; i < end; i++) {
+            int slot = (int) (i & mask);
+            if (times[slot] - since >= 0) {
+                result[count++] = values[slot];
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,357 @@
+package me.drazz.telegramremote.perf;
+
+import me.drazz.telegramremote.TelegramRemote;
+import me.drazz.telegramremote.bot.Main_BOT;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * On-demand sampling profiler. While a session runs, a daemon thread reads the main thread's stack
+ * (or those of the main thread and every runnable thread) through {@link ThreadMXBean} at a fixed
+ * interval and counts identical stacks in a map of bounded size; frames are only turned into text
+ * when the session ends. The result is the most frequent leaf frames for the chat plus a
+ * collapsed-stack file ("a;b;c count" per line) that flame graph tools read directly.
+ * One session at a time.
+ */
+public class SamplingProfiler {
+
+    private static final String OTHER_STACKS = "[other stacks]";
+    private static final long FAILURE_LOG_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final TelegramRemote plugin;
+    private final Thread mainThread;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private volatile long intervalMillis;
+    private volatile int maxSeconds;
+    private volatile int maxDepth;
+    private volatile int maxStacks;
+    private volatile int topFrames;
+
+    private Session session;
+
+    // Must be created on the server's main thread.
+    public SamplingProfiler(TelegramRemote plugin, Thread mainThread) {
+        this.plugin = plugin;
+        this.mainThread = mainThread;
+        loadConfig();
+    }
+
+    public void loadConfig() {
+        FileConfiguration config = plugin.getConfig();
+        intervalMillis = Math.max(1, config.getLong("telegram.profiler.interval_ms", 20));
+        maxSeconds = Math.max(1, config.getInt("telegram.profiler.max_seconds", 300));
+        maxDepth = Math.max(1, config.getInt("telegram.profiler.max_depth", 128));
+        maxStacks = Math.max(1, config.getInt("telegram.profiler.max_stacks", 5000));
+        topFrames = Math.max(1, config.getInt("telegram.profiler.top_frames", 15));
+    }
+
+    public int getMaxSeconds() {
+        return maxSeconds;
+    }
+
+    // False if a session is already running.
+    public synchronized boolean start(long chatId, int seconds, boolean allThreads) {
+        if (session != null) {
+            return false;
+        }
+        session = new Session(chatId, Math.min(seconds, maxSeconds), allThreads);
+        session.begin();
+        return true;
+    }
+
+    // Ends the running session early and sends what was collected so far; false if none is running.
+    public boolean stop() {
+        Session current;
+        synchronized (this) {
+            current = session;
+        }
+        if (current == null) {
+            return false;
+        }
+        try {
+            current.scheduler.execute(current::finish);
+        } catch (RejectedExecutionException e) {
+            // Already finishing on its own.
+        }
+        return true;
+    }
+
+    // Plugin shutdown: the session is dropped without a report.
+    public synchronized void shutdown() {
+        if (session != null) {
+            session.scheduler.shutdownNow();
+            session = null;
+        }
+    }
+
+    private synchronized void ended(Session ended) {
+        if (session == ended) {
+            session = null;
+        }
+    }
+
+    private final class Session {
+        private final long chatId;
+        private final int seconds;
+        private final boolean allThreads;
+        private final int depth = maxDepth;
+        private final int capacity = maxStacks;
+        private final ScheduledExecutorService scheduler;
+
+        // Only touched on the scheduler thread.
+        private final Map<StackKey, long[]> stacks = new HashMap<>();
+        private final Map<String, long[]> overflow = new HashMap<>();
+        private long samples;
+        private long samplingNanos;
+        private long startedAt;
+        private long samplerThreadId;
+        private ScheduledFuture<?> sampling;
+        private ScheduledFuture<?> deadline;
+        private boolean finished;
+        private long lastFailureLogged;
+        private int failuresNotLogged;
+
+        private Session(long chatId, int seconds, boolean allThreads) {
+            this.chatId = chatId;
+            this.seconds = seconds;
+            this.allThreads = allThreads;
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "TelegramRemote-Profiler");
+                thread.setDaemon(true);
+                samplerThreadId = thread.getId();
+                return thread;
+            });
+        }
+
+        private void begin() {
+            startedAt = System.nanoTime();
+            sampling = scheduler.scheduleAtFixedRate(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+            deadline = scheduler.schedule(this::finish, seconds, TimeUnit.SECONDS);
+        }
+
+        private void sample() {
+            long begin = System.nanoTime();
+            try {
+                if (allThreads) {
+                    for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds(), depth)) {
+                        if (info != null && info.getThreadId() != samplerThreadId
+                                && (info.getThreadState() == Thread.State.RUNNABLE || info.getThreadId() == mainThread.getId())) {
+                            record(info.getThreadName(), info.getStackTrace());
+                        }
+                    }
+                } else {
+                    ThreadInfo info = threads.getThreadInfo(mainThread.getId(), depth);
+                    if (info != null) {
+                        record(info.getThreadName(), info.getStackTrace());
+                    }
+                }
+                samples++;
+            } catch (RuntimeException e) {
+                // Thrown out of here, it would cancel the sampling task for good.
+                logFailure(e);
+            }
+            samplingNanos += System.nanoTime() - begin;
+        }
+
+        private void logFailure(RuntimeException e) {
+            long now = System.currentTimeMillis();
+            if (lastFailureLogged != 0 && now - lastFailureLogged < FAILURE_LOG_INTERVAL_MILLIS) {
+                failuresNotLogged++;
+                return;
+            }
+            String skipped = failuresNotLogged > 0 ? " (" + failuresNotLogged + " more since the last report)" : "";
+            plugin.getLogger().log(Level.WARNING, "Profiler sample failed" + skipped, e);
+            lastFailureLogged = now;
+            failuresNotLogged = 0;
+        }
+
+        private void record(String thread, StackTraceElement[] stack) {
+            if (stack.length == 0) {
+                return;
+            }
+            StackKey key = new StackKey(thread, stack);
+            long[] count = stacks.get(key);
+            if (count == null) {
+                if (stacks.size() >= capacity) {
+                    // Full: new stacks are only counted per thread, so the totals stay right.
+                    overflow.computeIfAbsent(thread, name -> new long[1])[0]++;
+                    return;
+                }
+                count = new long[1];
+                stacks.put(key, count);
+            }
+            count[0]++;
+        }
+
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            sampling.cancel(false);
+            // A delayed task still runs after shutdown(), which would keep this thread alive until the deadline.
+            deadline.cancel(false);
+            scheduler.shutdown();
+            ended(this);
+
+            try {
+                report();
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Failed to send the profile: " + e.getMessage());
+            }
+        }
+
+        private void report() {
+            Main_BOT bot = plugin.getTelegramBot();
+            if (bot == null) {
+                return;
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+            long total = 0;
+            Map<String, long[]> leaves = new HashMap<>();
+            for (Map.Entry<StackKey, long[]> entry : stacks.entrySet()) {
+                long count = entry.getValue()[0];
+                total += count;
+                leaves.computeIfAbsent(frame(entry.getKey().stack[0]), frame -> new long[1])[0] += count;
+            }
+            for (long[] count : overflow.values()) {
+                total += count[0];
+            }
+            if (!overflow.isEmpty()) {
+                long dropped = 0;
+                for (long[] count : overflow.values()) {
+                    dropped += count[0];
+                }
+                leaves.put(OTHER_STACKS, new long[]{dropped});
+            }
+
+            StringBuilder text = new StringBuilder(1024);
+            text.append(TelegramRemote.getMessage("messages.telegram.profiler.header")).append(' ')
+                    .append(elapsedMillis / 1000).append(" s, ")
+                    .append(TelegramRemote.getMessage(allThreads ? "messages.telegram.profiler.all_threads" : "messages.telegram.profiler.main_thread"))
+                    .append('\n');
+            text.append(TelegramRemote.getMessage("messages.telegram.profiler.samples")).append(' ').append(samples)
+                    .append(" (").append(intervalMillis).append(" ms), ")
+                    .append(TelegramRemote.getMessage("messages.telegram.profiler.overhead")).append(' ')
+                    .append(String.format(Locale.ROOT, "%.2f%%", elapsedMillis == 0 ? 0 : samplingNanos / 1e4 / elapsedMillis))
+                    .append('\n');
+            if (total == 0) {
+                bot.sendMsg(chatId, text.append(TelegramRemote.getMessage("messages.telegram.profiler.empty")).toString());
+                return;
+            }
+
+            text.append(TelegramRemote.getMessage("messages.telegram.profiler.top_frames")).append('\n');
+            List<Map.Entry<String, long[]>> ranked = new ArrayList<>(leaves.entrySet());
+            ranked.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+            for (int i = 0; i < Math.min(topFrames, ranked.size()); i++) {
+                Map.Entry<String, long[]> leaf = ranked.get(i);
+                text.append(String.format(Locale.ROOT, "%5.1f%% ", leaf.getValue()[0] * 100.0 / total))
+                        .append(leaf.getKey()).append('\n');
+            }
+            bot.sendMsg(chatId, text.toString());
+            sendCollapsed(bot);
+        }
+
+        private void sendCollapsed(Main_BOT bot) {
+            File file;
+            try {
+                file = File.createTempFile("telegramremote-profile", ".collapsed");
+            } catch (IOException e) {
+                plugin.getLogger().warning("Cannot create the profile file: " + e.getMessage());
+                return;
+            }
+
+            // Stacks that only differ in line numbers become the same line here.
+            Map<String, long[]> collapsed = new HashMap<>();
+            StringBuilder line = new StringBuilder(256);
+            for (Map.Entry<StackKey, long[]> entry : stacks.entrySet()) {
+                StackKey key = entry.getKey();
+                line.setLength(0);
+                line.append(escape(key.thread));
+                for (int i = key.stack.length - 1; i >= 0; i--) {
+                    line.append(';').append(escape(frame(key.stack[i])));
+                }
+                collapsed.computeIfAbsent(line.toString(), stack -> new long[1])[0] += entry.getValue()[0];
+            }
+            for (Map.Entry<String, long[]> entry : overflow.entrySet()) {
+                collapsed.put(escape(entry.getKey()) + ';' + OTHER_STACKS, entry.getValue());
+            }
+
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, long[]> entry : collapsed.entrySet()) {
+                    writer.write(entry.getKey() + ' ' + entry.getValue()[0] + '\n');
+                }
+            } catch (IOException e) {
+                plugin.getLogger().warning("Cannot write the profile file: " + e.getMessage());
+                file.delete();
+                return;
+            }
+
+            String fileName = "profile-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".collapsed";
+            bot.sendDocument(chatId, file, fileName, TelegramRemote.getMessage("messages.telegram.profiler.document"))
+                    .whenComplete((result, error) -> file.delete());
+        }
+    }
+
+    private static String frame(StackTraceElement element) {
+        return element.getClassName() + '.' + element.getMethodName();
+    }
+
+    // ';' separates frames and the last space separates the count in the collapsed format.
+    private static String escape(String name) {
+        return name.replace(';', ':').replace(' ', '_');
+    }
+
+    // Compares the captured frames directly, so nothing is formatted while sampling.
+    private static final class StackKey {
+        private final String thread;
+        private final StackTraceElement[] stack;
+        private final int hash;
+
+        private StackKey(String thread, StackTraceElement[] stack) {
+            this.thread = thread;
+            this.stack = stack;
+            this.hash = 31 * thread.hashCode() + Arrays.hashCode(stack);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof StackKey)) {
+                return false;
+            }
+            StackKey key = (StackKey) other;
+            return hash == key.hash && thread.equals(key.thread) && Arrays.equals(stack, key.stack);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package me.drazz.telegramremote.perf;
+
+import me.drazz.telegramremote.TelegramRemote;
+import me.drazz.telegramremote.bot.Main_BOT;
+import me.drazz.telegramremote.logs.LogRouter;
+import org.bukkit.Bukkit;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Notices when a server tick takes too long. A sync task stamps a heartbeat every tick; a separate
+ * thread compares it with the clock and, while the heartbeat is overdue, samples the main thread's
+ * stack every capture interval. Once the tick finishes (or the sample limit is reached while it is
+ * still stuck) admins get a summary of where the main thread was and the full samples as a file.
+ * Stalls stuck in the same place are reported once per cooldown.
+ */
+public class TickWatchdog implements Runnable {
+
+    private static final long CHECK_MILLIS = 50;
+    private static final int SUMMARY_FRAMES = 5;
+
+    private final TelegramRemote plugin;
+    // The stall warning goes to the console only: admins get the report itself.
+    private final Logger consoleLogger;
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private volatile long lastBeat;
+    private volatile Thread mainThread;
+    private volatile boolean running;
+    private BukkitTask task;
+    private Thread watcher;
+
+    private volatile long thresholdNanos;
+    private volatile long captureIntervalNanos;
+    private volatile int maxCaptures;
+    private volatile long cooldownNanos;
+
+    // Only touched on the watcher thread.
+    private final List<Capture> captures = new ArrayList<>();
+    private final Map<String, Long> lastReported = new HashMap<>();
+    private final Map<String, Integer> suppressed = new HashMap<>();
+    private long stallBeat;
+    private long nextCapture;
+    private boolean reported;
+
+    public TickWatchdog(TelegramRemote plugin) {
+        this.plugin = plugin;
+        this.consoleLogger = Logger.getLogger(LogRouter.CONSOLE_ONLY_LOGGER);
+        consoleLogger.setParent(plugin.getLogger());
+    }
+
+    public void start() {
+        loadConfig();
+        running = true;
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this, 1, 1);
+        watcher = new Thread(this::watch, "TelegramRemote-Watchdog");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public void loadConfig() {
+        FileConfiguration config = plugin.getConfig();
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(100, config.getLong("telegram.watchdog.threshold_ms", 2000)));
+        captureIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(CHECK_MILLIS, config.getLong("telegram.watchdog.capture_interval_ms", 500)));
+        maxCaptures = Math.max(1, config.getInt("telegram.watchdog.max_captures", 20));
+        cooldownNanos = TimeUnit.MINUTES.toNanos(Math.max(0, config.getLong("telegram.watchdog.cooldown_minutes", 10)));
+    }
+
+    public void stop() {
+        running = false;
+        if (task != null) {
+            task.cancel();
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    // Main thread, every tick.
+    @Override
+    public void run() {
+        if (mainThread == null) {
+            mainThread = Thread.currentThread();
+        }
+        lastBeat = System.nanoTime();
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                Thread.sleep(CHECK_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                check(System.nanoTime());
+            } catch (RuntimeException e) {
+                plugin.getLogger().warning("Tick watchdog check failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void check(long now) {
+        long beat = lastBeat;
+        if (beat == 0) {
+            return;
+        }
+
+        if (stallBeat != 0 && beat != stallBeat) {
+            long duration = beat - stallBeat;
+            plugin.getMetrics().tickStalls.increment();
+            plugin.getMetrics().tickStallDuration.record(duration);
+            if (!reported) {
+                report(duration, false);
+            }
+            stallBeat = 0;
+            captures.clear();
+        }
+
+        if (now - beat < thresholdNanos) {
+            return;
+        }
+        if (stallBeat == 0) {
+            stallBeat = beat;
+            nextCapture = now;
+            reported = false;
+        }
+        if (captures.size() < maxCaptures && now - nextCapture >= 0) {
+            capture(now - beat);
+            nextCapture = now + captureIntervalNanos;
+        }
+        if (!reported && captures.size() >= maxCaptures) {
+            report(now - beat, true);
+            reported = true;
+        }
+    }
+
+    private void capture(long stalledNanos) {
+        Thread thread = mainThread;
+        if (thread == null) {
+            return;
+        }
+        ThreadInfo info = threads.getThreadInfo(thread.getId(), Integer.MAX_VALUE);
+        if (info != null) {
+            captures.add(new Capture(TimeUnit.NANOSECONDS.toMillis(stalledNanos), info));
+        }
+    }
+
+    private void report(long durationNanos, boolean ongoing) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        consoleLogger.warning("[" + plugin.getName() + "] Server tick " + (ongoing ? "has been stalled for " : "took ") + millis + " ms ("
+                + captures.size() + " main thread samples)");
+        if (captures.isEmpty()) {
+            return;
+        }
+
+        Map<String, Integer> places = new LinkedHashMap<>();
+        for (Capture capture : captures) {
+            places.merge(capture.place, 1, Integer::sum);
+        }
+        List<Map.Entry<String, Integer>> ranked = new ArrayList<>(places.entrySet());
+        ranked.sort((a, b) -> b.getValue() - a.getValue());
+        String signature = ranked.get(0).getKey();
+
+        long now = System.nanoTime();
+        Long last = lastReported.get(signature);
+        if (last != null && now - last < cooldownNanos) {
+            suppressed.merge(signature, 1, Integer::sum);
+            return;
+        }
+        Integer similar = suppressed.remove(signature);
+        lastReported.values().removeIf(time -> now - time >= cooldownNanos);
+        suppressed.keySet().retainAll(lastReported.keySet());
+        lastReported.put(signature, now);
+
+        Main_BOT bot = plugin.getTelegramBot();
+        if (bot == null || plugin.getAdmins().get().isEmpty()) {
+            return;
+        }
+
+        StringBuilder text = new StringBuilder();
+        text.append(TelegramRemote.getMessage(ongoing ? "messages.telegram.watchdog.still_stalled" : "messages.telegram.watchdog.stalled"))
+                .append(' ').append(millis).append(" ms\n")
+                .append(TelegramRemote.getMessage("messages.telegram.watchdog.main_thread_in")).append('\n');
+        for (int i = 0; i < Math.min(SUMMARY_FRAMES, ranked.size()); i++) {
+            Map.Entry<String, Integer> place = ranked.get(i);
+            text.append(place.getValue()).append("× ").append(place.getKey()).append('\n');
+        }
+        if (similar != null) {
+            text.append(TelegramRemote.getMessage("messages.telegram.watchdog.suppressed")).append(' ').append(similar).append('\n');
+        }
+        bot.getBroadcaster().broadcast(plugin.getAdmins().get(), text.toString());
+        sendDump(bot, millis, ongoing);
+    }
+
+    private void sendDump(Main_BOT bot, long millis, boolean ongoing) {
+        File file;
+        try {
+            file = File.createTempFile("telegramremote-stall", ".txt");
+        } catch (IOException e) {
+            plugin.getLogger().warning("Cannot create the stall dump file: " + e.getMessage());
+            return;
+        }
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            writer.write("Server tick " + (ongoing ? "stalled for at least " : "took ") + millis + " ms, "
+                    + captures.size() + " samples of the main thread\n");
+            for (int i = 0; i < captures.size(); i++) {
+                Capture capture = captures.get(i);
+                writer.write("\n--- sample " + (i + 1) + " at +" + capture.offsetMillis + " ms, " + capture.state
+                        + (capture.lock != null ? " on " + capture.lock : "") + "\n");
+                for (StackTraceElement frame : capture.stack) {
+                    writer.write("\tat " + frame + "\n");
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().warning("Cannot write the stall dump file: " + e.getMessage());
+            file.delete();
+            return;
+        }
+
+        String fileName = "tick-stall-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".txt";
+        bot.getBroadcaster().broadcastDocument(plugin.getAdmins().get(), file, fileName,
+                TelegramRemote.getMessage("messages.telegram.watchdog.document")).whenComplete((result, error) -> file.delete());
+    }
+
+    // Where the main thread was: its top frame and, if that is inside the JDK, the first frame of server or plugin code.
+    private static String place(StackTraceElement[] stack) {
+        if (stack.length == 0) {
+            return "?";
+        }
+        String top = stack[0].toString();
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (!className.startsWith("java.") && !className.startsWith("sun.") && !className.startsWith("jdk.")) {
+                return frame == stack[0] ? top : top + " ← " + frame;
+            }
+        }
+        return top;
+    }
+
+    private static final class Capture {
+        private final long offsetMillis;
+        private final Thread.State state;
+        private final String lock;
+        private final StackTraceElement[] stack;
+        private final String place;
+
+        private Capture(long offsetMillis, ThreadInfo info) {
+            this.offsetMillis = offsetMillis;
+            this.state = info.getThreadState();
+            this.lock = info.getLockName();
+            this.stack = info.getStackTrace();
+            this.place = place(stack);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package me.drazz.telegramremote.rcon;
+
+import com.github.t9t.minecraftrconclient.RconClient;
+import com.github.t9t.minecraftrconclient.RconClientException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps authenticated RCON connections open and reuses them between commands.
+ * Idle connections are handed out most-recently-used first, so a console session
+ * typing several commands in a row stays on the same warm connection.
+ */
+public class RconSessionPool {
+
+    private static final int MAX_CONNECTIONS = 2;
+    private static final long IDLE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final long PROBE_AFTER_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    // An empty command does nothing on the server but needs a full round trip.
+    private static final String PROBE_COMMAND = "";
+    private static final long SWEEP_INTERVAL_SECONDS = 15;
+    private static final long BACKOFF_BASE_MILLIS = 500;
+    private static final long BACKOFF_MAX_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final JavaPlugin plugin;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Semaphore permits = new Semaphore(MAX_CONNECTIONS, true);
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "TelegramRemote-RCON");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private String host;
+    private int port;
+    private String password;
+    private int generation;
+    private int connectFailures;
+    private long nextConnectAttempt;
+
+    public RconSessionPool(JavaPlugin plugin) {
+        this.plugin = plugin;
+        loadConfig();
+        sweeper.scheduleAtFixedRate(this::closeIdle, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public synchronized void loadConfig() {
+        FileConfiguration config = plugin.getConfig();
+        String newHost = config.getString("telegram.rcon.rcon_host");
+        int newPort = config.getInt("telegram.rcon.rcon_port");
+        String newPassword = config.getString("telegram.rcon.rcon_pass");
+
+        if (!Objects.equals(host, newHost) || port != newPort || !Objects.equals(password, newPassword)) {
+            closeAll();
+            generation++;
+            connectFailures = 0;
+            nextConnectAttempt = 0;
+        }
+
+        host = newHost;
+        port = newPort;
+        password = newPassword;
+    }
+
+    public String sendCommand(String command) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RconClientException("Interrupted while waiting for an RCON connection");
+        }
+
+        try {
+            PooledConnection connection = borrow();
+            if (connection != null && !isAlive(connection)) {
+                connection = null;
+            }
+            // A failure after this point is never retried: the command may already have reached the server.
+            return sendAndRelease(connection != null ? connection : connect(), command);
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getMaxConnections() {
+        return MAX_CONNECTIONS;
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+        synchronized (this) {
+            closeAll();
+        }
+    }
+
+    // The server may have dropped a connection that sat idle for a while; find out before sending anything that matters.
+    private boolean isAlive(PooledConnection connection) {
+        if (System.currentTimeMillis() - connection.lastUsed < PROBE_AFTER_MILLIS) {
+            return true;
+        }
+        try {
+            connection.client.sendCommand(PROBE_COMMAND);
+            return true;
+        } catch (RconClientException e) {
+            connection.close();
+            return false;
+        }
+    }
+
+    private String sendAndRelease(PooledConnection connection, String command) {
+        String response;
+        try {
+            response = connection.client.sendCommand(command);
+        } catch (RconClientException e) {
+            connection.close();
+            throw e;
+        }
+        connection.lastUsed = System.currentTimeMillis();
+        synchronized (this) {
+            if (connection.generation == generation) {
+                idle.push(connection);
+            } else {
+                connection.close();
+            }
+        }
+        return response;
+    }
+
+    private synchronized PooledConnection borrow() {
+        long now = System.currentTimeMillis();
+        while (!idle.isEmpty()) {
+            PooledConnection connection = idle.pop();
+            if (now - connection.lastUsed < IDLE_TIMEOUT_MILLIS) {
+                return connection;
+            }
+            connection.close();
+        }
+        return null;
+    }
+
+    private PooledConnection connect() {
+        String connectHost;
+        int connectPort;
+        String connectPassword;
+        int connectGeneration;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now < nextConnectAttempt) {
+                throw new RconClientException("RCON unavailable, next attempt in " + (nextConnectAttempt - now) + " ms");
+            }
+            connectHost = Objects.requireNonNull(host, "telegram.rcon.rcon_host");
+            connectPort = port;
+            connectGeneration = generation;
+            connectPassword = Objects.requireNonNull(password, "telegram.rcon.rcon_pass");
+        }
+
+        try {
+            PooledConnection connection = new PooledConnection(RconClient.open(connectHost, connectPort, connectPassword), connectGeneration);
+            synchronized (this) {
+                connectFailures = 0;
+                nextConnectAttempt = 0;
+            }
+            return connection;
+        } catch (RconClientException e) {
+            synchronized (this) {
+                long backoff = Math.min(BACKOFF_MAX_MILLIS, BACKOFF_BASE_MILLIS << Math.min(connectFailures, 16));
+                connectFailures++;
+                nextConnectAttempt = System.currentTimeMillis() + backoff;
+            }
+            throw e;
+        }
+    }
+
+    private synchronized void closeIdle() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> iterator = idle.iterator();
+        while (iterator.hasNext()) {
+            PooledConnection connection = iterator.next();
+            if (now - connection.lastUsed >= IDLE_TIMEOUT_MILLIS) {
+                iterator.remove();
+                connection.close();
+            }
+        }
+    }
+
+    private void closeAll() {
+        while (!idle.isEmpty()) {
+            idle.pop().close();
+        }
+    }
+
+    private static final class PooledConnection {
+        private final RconClient client;
+        private final int generation;
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledConnection(RconClient client, int generation) {
+            this.client = client;
+            this.generation = generation;
+        }
+
+        private void close() {
+            try {
+                client.close();
+            } catch (RconClientException ignored) {
+            }
+        }
+    }
+}